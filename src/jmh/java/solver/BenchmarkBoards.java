@@ -0,0 +1,68 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The boards the benchmarks run on, by name, together with the hole that is
+ * left empty at the start.
+ */
+final class BenchmarkBoards {
+
+    private BenchmarkBoards() {
+    }
+
+
+    static Position start(String name) {
+        switch (name) {
+            case "english":
+                return Boards.english().initialPosition(3, 3);
+            case "european":
+                return Boards.european().initialPosition(2, 0);
+            case "wiegleb":
+                return Boards.wiegleb().initialPosition(4, 4);
+            case "triangular15":
+                return Boards.triangular15().initialPosition(0, 0);
+            case "triangular21":
+                return Boards.triangular(6).initialPosition(0, 0);
+            case "rect8x8":
+                return Boards.rectangle(8, 8).initialPosition(3, 3);
+            case "rect10x10":
+                return Boards.rectangle(10, 10).initialPosition(4, 4);
+            case "rect6x14":
+                return Boards.rectangle(6, 14).initialPosition(2, 6);
+            default:
+                throw new IllegalArgumentException("unknown board " + name);
+        }
+    }
+
+
+    /**
+     * Plays a beam search from the start for the given number of generations and
+     * returns the last generation: a realistic sample of mid-game positions.
+     */
+    static Position[] frontier(Position start, int generations, int width) {
+        StateKeys keys = new StateKeys(start.board(), false, 0);
+        List<Position> gen = new ArrayList<Position>();
+        gen.add(start);
+
+        for (int g = 0; g < generations; g++) {
+            Dedup dedup = new Dedup(keys, null, gen.size() * 4, StateSet.DEFAULT_LOAD_FACTOR);
+            Beam beam = new Beam(width);
+            long seq = 0;
+            for (Position p : gen) {
+                for (Position child : p.children()) {
+                    if (dedup.add(child)) {
+                        beam.offer(child, seq++);
+                    }
+                }
+            }
+            if (beam.size() == 0) {
+                break;
+            }
+            gen = beam.survivors();
+        }
+
+        return gen.toArray(new Position[gen.size()]);
+    }
+}
@@ -0,0 +1,31 @@
+package solver;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the solver benchmarks and writes the results as JSON, so that runs can
+ * be compared by tooling to track regressions.
+ * <p>
+ * Usage: <code>BenchmarkMain [result file] [benchmark regexp]</code>. The result
+ * file defaults to <code>jmh-result.json</code> and the regexp to every
+ * benchmark in this package.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException {
+        String result = args.length > 0 ? args[0] : "jmh-result.json";
+        String include = args.length > 1 ? args[1] : "solver\\..*Benchmark";
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build();
+
+        new Runner(options).run();
+    }
+}
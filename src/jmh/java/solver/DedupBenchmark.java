@@ -0,0 +1,64 @@
+package solver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The dedup step of one generation: all the children of a mid-game frontier
+ * are pushed through a fresh Dedup, as searchByGeneration does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DedupBenchmark {
+
+    @Param({"english", "european", "wiegleb", "rect10x10"})
+    public String board;
+
+    @Param({"exact", "symmetric", "hash64"})
+    public String keys;
+
+    private Position[] children;
+    private StateKeys stateKeys;
+
+
+    @Setup
+    public void setup() {
+        Position start = BenchmarkBoards.start(board);
+        List<Position> all = new ArrayList<Position>();
+        for (Position p : BenchmarkBoards.frontier(start, start.pegCount() / 3, 2000)) {
+            all.addAll(p.children());
+        }
+        children = all.toArray(new Position[all.size()]);
+
+        boolean symmetric = keys.equals("symmetric");
+        int hashBits = keys.equals("hash64") ? 64 : 0;
+        stateKeys = new StateKeys(start.board(), symmetric, hashBits);
+    }
+
+
+    @Benchmark
+    public int dedup() {
+        Dedup dedup = new Dedup(stateKeys, null, 16, StateSet.DEFAULT_LOAD_FACTOR);
+        for (Position p : children) {
+            dedup.add(p);
+        }
+        return dedup.size();
+    }
+}
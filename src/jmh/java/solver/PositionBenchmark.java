@@ -0,0 +1,119 @@
+package solver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-position hot paths of the solver, measured over a sample of mid-game
+ * positions of each board. Every operation processes the whole sample, so
+ * scores are per sample, not per position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionBenchmark {
+
+    @Param({"english", "european", "wiegleb", "triangular15", "triangular21", "rect8x8", "rect10x10", "rect6x14"})
+    public String board;
+
+    private Position[] sample;
+    private long[] key;
+    private long[] scratch;
+    private long[] states;
+    private int[] scores;
+
+
+    @Setup
+    public void setup() {
+        Position start = BenchmarkBoards.start(board);
+        sample = BenchmarkBoards.frontier(start, start.pegCount() / 3, 256);
+        key = new long[start.board().words];
+        scratch = new long[start.board().words];
+
+        int words = start.board().words;
+        states = new long[sample.length * words];
+        scores = new int[sample.length];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i].key(states, i * words);
+        }
+    }
+
+
+    @Benchmark
+    public void children(Blackhole bh) {
+        for (Position p : sample) {
+            bh.consume(p.children());
+        }
+    }
+
+
+    @Benchmark
+    public void compactnessScore(Blackhole bh) {
+        Board board = sample[0].board();
+        for (int i = 0; i < sample.length; i++) {
+            bh.consume(Position.compactness(board, states, i * board.words));
+        }
+    }
+
+
+    @Benchmark
+    public void borderLengthBatch(Blackhole bh) {
+        Scorers.borderLength().score(sample[0].board(), states, sample.length, scores);
+        bh.consume(scores);
+    }
+
+
+    @Benchmark
+    public void isolatedPegsBatch(Blackhole bh) {
+        Scorers.isolatedPegs().score(sample[0].board(), states, sample.length, scores);
+        bh.consume(scores);
+    }
+
+
+    @Benchmark
+    public void distanceToCenterBatch(Blackhole bh) {
+        Scorers.distanceToCenter().score(sample[0].board(), states, sample.length, scores);
+        bh.consume(scores);
+    }
+
+
+    @Benchmark
+    public void key(Blackhole bh) {
+        for (Position p : sample) {
+            p.key(key);
+            bh.consume(key[0]);
+        }
+    }
+
+
+    @Benchmark
+    public void symmKey(Blackhole bh) {
+        for (Position p : sample) {
+            p.symmKey(key, scratch);
+            bh.consume(key[0]);
+        }
+    }
+
+
+    @Benchmark
+    public void zobristHash(Blackhole bh) {
+        for (Position p : sample) {
+            bh.consume(p.hash());
+        }
+    }
+}
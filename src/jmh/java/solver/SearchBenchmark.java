@@ -0,0 +1,46 @@
+package solver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full PruningSearch.search() from the start position of each board.
+ * The search stops at the first generation with a final position, or when
+ * the beam runs dry, so unsolved runs are measured too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"english", "european", "wiegleb", "triangular15", "triangular21", "rect8x8", "rect10x10", "rect6x14"})
+    public String board;
+
+    @Param({"10", "121", "1000", "10000"})
+    public int prune;
+
+    @Param({"false", "true"})
+    public boolean symmetry;
+
+
+    @Benchmark
+    public int search() {
+        PruningSearch search = new PruningSearch(BenchmarkBoards.start(board));
+        search.prune(prune);
+        search.setUseSymmetry(symmetry);
+        return search.search();
+    }
+}
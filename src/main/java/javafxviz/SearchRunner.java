@@ -16,6 +16,10 @@ class SearchRunner
   int initPosY;
   int pruningFactor;
 
+  /**
+   * Opens the Visualizer at once; the search runs in the background while the
+   * window shows its progress, and the solution is loaded when it is found.
+   */
   void visualize()
   {
     String[] args = new String[0];
@@ -24,38 +28,58 @@ class SearchRunner
     Position p = b.initialPosition(initPosX, initPosY);
     PruningSearch pruningSearch = new PruningSearch(p);
     pruningSearch.prune(pruningFactor);
-    int n_sol = pruningSearch.search();
 
-    if(n_sol > 0)
-    {
-      System.out.printf("Found %d solution(s).%n", n_sol);
+    Visualizer.title = boardName;
+    Visualizer.board = b;
+    Visualizer.initPosition = p;
+    Visualizer.search = pruningSearch;
+    Application.launch(Visualizer.class, args);
+  }
+
+
+  /**
+   * @return index of the solution to display: the first complement solution
+   * if there is one, otherwise the first solution.
+   */
+  static int chooseSolution(PruningSearch pruningSearch, Position p, int n_sol)
+  {
+    System.out.printf("Found %d solution(s).%n", n_sol);
 
-      for(int i = 0; i < n_sol; i++)
+    for(int i = 0; i < n_sol; i++)
+    {
+      Position f = pruningSearch.getFinalPosition(i);
+      if(p.isComplement(f))
       {
-        Position f = pruningSearch.getFinalPosition(i);
-        if(p.isComplement(f))
-        {
-          System.out.println("Found complement solution.");
-          Visualizer.title = String.format("%s Solution #%d", boardName, i+1);
-          Visualizer.board = b;
-          Visualizer.initPosition = p;
-          Visualizer.solution = pruningSearch.getSolution(i);
-          Application.launch(Visualizer.class, args);
-          return;
-        }
+        System.out.println("Found complement solution.");
+        return i;
       }
+    }
+
+    System.out.println("Did not find any complement solutions. Displaying solution #1.");
+    return 0;
+  }
+
 
-      int i = 0;
-      System.out.println("Did not find any complement solutions. Displaying solution #1.");
-      Visualizer.title = String.format("%s Solution #%d", boardName, i+1);
-      Visualizer.board = b;
-      Visualizer.initPosition = p;
-      Visualizer.solution = pruningSearch.getSolution(i);
-      Application.launch(Visualizer.class, args);
+  /**
+   * @return why a search that found nothing ended.
+   */
+  static String noSolution(PruningSearch pruningSearch)
+  {
+    if(pruningSearch.cancelled())
+    {
+      return "Search cancelled.";
+    }
+    else if(pruningSearch.timedOut())
+    {
+      return "Search stopped by its time limit.";
+    }
+    else if(pruningSearch.targetUnreachable())
+    {
+      return "No solutions found: the position class of the starting hole rules out every finish.";
     }
     else
     {
-      System.out.println("No solutions found.");
+      return "No solutions found.";
     }
   }
 }
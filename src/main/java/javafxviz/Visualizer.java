@@ -2,6 +2,9 @@ package javafxviz;
 
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
@@ -14,14 +17,19 @@ import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontSmoothingType;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
 import solver.Board;
+import solver.GenerationStats;
 import solver.Move;
 import solver.Position;
+import solver.PruningSearch;
+import solver.SearchListener;
 
 import java.util.List;
 
@@ -30,7 +38,7 @@ public class Visualizer extends Application
   static String title;
   static Board board;
   static Position initPosition;
-  static List<Move> solution;
+  static PruningSearch search;
 
   private static final double CELL_SIZE = 50.0;
   private static final double ARR = 10.0;
@@ -39,14 +47,22 @@ public class Visualizer extends Application
   private Position currentPosition = null;
   private int solutionIndex = 0;
   private boolean showArrow = false;
+  private List<Move> solution = null;
+  private Stage stage = null;
+  private Text titleText = null;
+  private Text statusText = null;
+  private Button startButton = null;
+  private Button advanceButton = null;
+  private Button cancelButton = null;
 
 
   @Override
   public void start(Stage stage)
   {
     double w = board.X * CELL_SIZE + 2 * CELL_SIZE;
-    double h = board.Y * CELL_SIZE + 4 * CELL_SIZE;
+    double h = board.Y * CELL_SIZE + 5 * CELL_SIZE;
     Background bg = whiteBackground();
+    this.stage = stage;
 
     stage.setTitle(title);
     stage.setMinWidth(w);
@@ -67,7 +83,97 @@ public class Visualizer extends Application
     Scene scene = new Scene(rootPane, w, h);
 
     stage.setScene(scene);
+    stage.setOnCloseRequest(new EventHandler<WindowEvent>()
+    {
+      @Override
+      public void handle(WindowEvent event)
+      {
+        search.cancel();
+      }
+    });
     stage.show();
+
+    startSearch();
+  }
+
+
+  /**
+   * Runs the search on a background thread. Progress is reported generation by
+   * generation in the status line, and the solution is loaded when the search ends.
+   */
+  private void startSearch()
+  {
+    search.addListener(new SearchListener()
+    {
+      @Override
+      public void generationExpanded(final GenerationStats stats)
+      {
+        Platform.runLater(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            statusText.setText(String.format("Searching: generation %d, %d pegs, %d positions",
+                stats.generation(), stats.pegs(), stats.frontier()));
+          }
+        });
+      }
+    });
+
+    final Task<Integer> task = new Task<Integer>()
+    {
+      @Override
+      protected Integer call()
+      {
+        return search.search();
+      }
+    };
+
+    task.setOnSucceeded(new EventHandler<WorkerStateEvent>()
+    {
+      @Override
+      public void handle(WorkerStateEvent event)
+      {
+        searchFinished(task.getValue());
+      }
+    });
+
+    task.setOnFailed(new EventHandler<WorkerStateEvent>()
+    {
+      @Override
+      public void handle(WorkerStateEvent event)
+      {
+        cancelButton.setDisable(true);
+        statusText.setText("Search failed: " + task.getException().getMessage());
+      }
+    });
+
+    Thread thread = new Thread(task, "visualizer-search");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+
+  private void searchFinished(int n_sol)
+  {
+    cancelButton.setDisable(true);
+
+    if(n_sol == 0)
+    {
+      statusText.setText(SearchRunner.noSolution(search));
+      System.out.println(statusText.getText());
+      return;
+    }
+
+    int i = SearchRunner.chooseSolution(search, initPosition, n_sol);
+    String solutionTitle = String.format("%s Solution #%d", title, i+1);
+    stage.setTitle(solutionTitle);
+    titleText.setText(solutionTitle);
+    statusText.setText(String.format("Found %d solution(s).", n_sol));
+
+    solution = search.getSolution(i);
+    startButton.setDisable(false);
+    advanceButton.setDisable(false);
   }
 
 
@@ -85,6 +191,7 @@ public class Visualizer extends Application
     Text text = new Text(titleText);
     text.setFont(font);
     text.setFontSmoothingType(FontSmoothingType.LCD);
+    this.titleText = text;
 
     HBox hbox = new HBox();
     hbox.setAlignment(Pos.CENTER);
@@ -94,9 +201,11 @@ public class Visualizer extends Application
   }
 
 
-  private HBox footer()
+  private VBox footer()
   {
-    Button startButton = new Button();
+    statusText = new Text("Searching...");
+
+    startButton = new Button();
     startButton.setText("Start");
     startButton.setOnAction(new EventHandler<ActionEvent>()
     {
@@ -110,7 +219,7 @@ public class Visualizer extends Application
       }
     });
 
-    Button advanceButton = new Button();
+    advanceButton = new Button();
     advanceButton.setText("Advance >>");
     advanceButton.setOnAction(new EventHandler<ActionEvent>()
     {
@@ -126,24 +235,7 @@ public class Visualizer extends Application
         {
 
           Move move = solution.get(solutionIndex);
-          currentPosition.set(move.x1, move.y1, false);
-          currentPosition.set(move.x2, move.y2, true);
-
-          int x3;
-          int y3;
-
-          if(move.x1 == move.x2)
-          {
-            x3 = move.x1;
-            y3 = (move.y1 + move.y2)/2;
-          }
-          else
-          {
-            y3 = move.y1;
-            x3 = (move.x1 + move.x2)/2;
-          }
-
-          currentPosition.set(x3, y3, false);
+          currentPosition.play(move);
 
           showArrow = false;
           solutionIndex++;
@@ -157,11 +249,32 @@ public class Visualizer extends Application
       }
     });
 
-    HBox hbox = new HBox();
+    cancelButton = new Button();
+    cancelButton.setText("Cancel");
+    cancelButton.setOnAction(new EventHandler<ActionEvent>()
+    {
+      @Override
+      public void handle(ActionEvent event)
+      {
+        search.cancel();
+        cancelButton.setDisable(true);
+        statusText.setText("Cancelling...");
+      }
+    });
+
+    // nothing to step through until the solution arrives
+    startButton.setDisable(true);
+    advanceButton.setDisable(true);
+
+    HBox hbox = new HBox(10);
     hbox.setAlignment(Pos.CENTER);
-    hbox.setPadding(new Insets(10, 10, 10, 10));
-    hbox.getChildren().addAll(startButton, advanceButton);
-    return hbox;
+    hbox.getChildren().addAll(startButton, advanceButton, cancelButton);
+
+    VBox vbox = new VBox(10);
+    vbox.setAlignment(Pos.CENTER);
+    vbox.setPadding(new Insets(10, 10, 10, 10));
+    vbox.getChildren().addAll(statusText, hbox);
+    return vbox;
   }
 
 
@@ -248,83 +361,19 @@ public class Visualizer extends Application
     gc.setLineWidth(3);
     gc.strokeLine(x1, y1, x2, y2);
 
-    if(move.x1 == move.x2)
-    {
-      if(move.y1 < move.y2)
-      {
-        drawDownArrow(x2, y2);
-      }
-      else
-      {
-        drawUpArrow(x2, y2);
-      }
-    }
-    else if(move.y1 == move.y2)
-    {
-      if(move.x1 < move.x2)
-      {
-        drawRightArrow(x2, y2);
-      }
-      else
-      {
-        drawLeftArrow(x2, y2);
-      }
-    }
-  }
-
-
-  private void drawDownArrow(double x, double y)
-  {
-    drawTopLeft(x, y);
-    drawTopRight(x, y);
+    drawArrowHead(x2, y2, Math.atan2(y2 - y1, x2 - x1));
   }
 
 
-  private void drawUpArrow(double x, double y)
-  {
-    drawBottomLeft(x, y);
-    drawBottomRight(x, y);
-  }
-
-
-  private void drawRightArrow(double x, double y)
-  {
-    drawTopLeft(x, y);
-    drawBottomLeft(x, y);
-  }
-
-
-  private void drawLeftArrow(double x, double y)
-  {
-    drawTopRight(x, y);
-    drawBottomRight(x, y);
-  }
-
-
-  private void drawTopLeft(double x, double y)
+  // two barbs pointing back from (x, y), 45 degrees either side of a move
+  // heading at the given angle, so that moves in any direction get a head
+  private void drawArrowHead(double x, double y, double angle)
   {
+    double length = ARR * Math.sqrt(2.0);
     gc.setLineWidth(3);
-    gc.strokeLine(x, y, x-ARR, y-ARR);
-  }
-
-
-  private void drawTopRight(double x, double y)
-  {
-    gc.setLineWidth(3);
-    gc.strokeLine(x, y, x+ARR, y-ARR);
-  }
-
-
-  private void drawBottomLeft(double x, double y)
-  {
-    gc.setLineWidth(3);
-    gc.strokeLine(x, y, x-ARR, y+ARR);
-  }
-
-
-  private void drawBottomRight(double x, double y)
-  {
-    gc.setLineWidth(3);
-    gc.strokeLine(x, y, x+ARR, y+ARR);
+    for(double barb : new double[]{angle + 0.75 * Math.PI, angle - 0.75 * Math.PI})
+    {
+      gc.strokeLine(x, y, x + length * Math.cos(barb), y + length * Math.sin(barb));
+    }
   }
 }
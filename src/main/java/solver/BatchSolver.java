@@ -0,0 +1,157 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class BatchSolver runs many searches, over any number of boards and start
+ * holes, on one fixed pool of worker threads, so that sweeping every start of
+ * a dozen boards takes one JVM and as many threads as there are cores.
+ * <p>
+ * Every job runs a single-threaded PruningSearch on one worker; the pool
+ * provides the parallelism. A Board is immutable once built, so jobs that pass
+ * the same Board instance share its precomputed tables instead of rebuilding
+ * them. The workers are daemon threads; call {@link #shutdown()} when done.
+ */
+public class BatchSolver {
+
+    /**
+     * Receives the results of {@link #solveAll(Collection, ResultListener)}.
+     */
+    public interface ResultListener {
+        /**
+         * Called on the thread that called <code>solveAll</code>, once per job,
+         * in the order in which the jobs finish.
+         */
+        void finished(SolveResult result);
+    }
+
+
+    private final ExecutorService pool;
+    private volatile SolutionCache cache = null;
+
+
+    /**
+     * @param threads number of worker threads, at least 1.
+     */
+    public BatchSolver(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("thread count must be at least 1");
+        }
+
+        final AtomicInteger counter = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "batch-solver-" + counter.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+
+    /**
+     * Answers jobs from the cache when possible, and stores the results of the
+     * jobs that had to be searched. Null, the default, searches every job.
+     */
+    public void setCache(SolutionCache cache) {
+        this.cache = cache;
+    }
+
+
+    /**
+     * Queues a job.
+     *
+     * @return a future that completes with the result of the job, or with the
+     * exception its search threw.
+     */
+    public Future<SolveResult> submit(SolveJob job) {
+        return pool.submit(task(job));
+    }
+
+
+    /**
+     * Queues jobs.
+     *
+     * @return one future per job, in the order of the jobs.
+     */
+    public List<Future<SolveResult>> submitAll(Collection<SolveJob> jobs) {
+        List<Future<SolveResult>> futures = new ArrayList<Future<SolveResult>>(jobs.size());
+        for (SolveJob job : jobs) {
+            futures.add(submit(job));
+        }
+        return futures;
+    }
+
+
+    /**
+     * Runs jobs and hands every result to the listener as soon as it is ready.
+     * Returns when all of them have finished.
+     *
+     * @throws IllegalStateException if a search fails or the calling thread is interrupted.
+     */
+    public void solveAll(Collection<SolveJob> jobs, ResultListener listener) {
+        CompletionService<SolveResult> completion = new ExecutorCompletionService<SolveResult>(pool);
+        for (SolveJob job : jobs) {
+            completion.submit(task(job));
+        }
+
+        for (int i = 0; i < jobs.size(); i++) {
+            try {
+                listener.finished(completion.take().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("batch interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("search failed", e.getCause());
+            }
+        }
+    }
+
+
+    /**
+     * Stops accepting jobs. Jobs already queued still run.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+
+    private Callable<SolveResult> task(final SolveJob job) {
+        final SolutionCache cache = this.cache;
+        return new Callable<SolveResult>() {
+            @Override
+            public SolveResult call() {
+                long start = System.nanoTime();
+                if (cache != null) {
+                    List<Move> cached = cache.lookup(job);
+                    if (cached != null) {
+                        return new SolveResult(job, cached, cache.targetUnreachable(job),
+                                (System.nanoTime() - start) / 1000000);
+                    }
+                }
+
+                PruningSearch search = job.createSearch();
+                int n = search.search();
+                if (cache != null) {
+                    cache.store(job, search.getSolution(0), search.targetUnreachable());
+                }
+                return new SolveResult(job, search, n, (System.nanoTime() - start) / 1000000);
+            }
+        };
+    }
+}
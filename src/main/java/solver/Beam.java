@@ -0,0 +1,260 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Beam keeps the best <code>capacity</code> positions of a stream, so that a
+ * pruned generation can be selected while its children are being generated
+ * instead of after the whole generation has been built and sorted.
+ * <p>
+ * Positions are ranked by score, and positions with equal scores by the
+ * sequence number they were offered with. The survivors are exactly the first
+ * <code>capacity</code> positions of a stable sort of everything offered.
+ * The worst survivor sits at the root of a binary max-heap, so a child that
+ * cannot make the beam is rejected with a single comparison.
+ * <p>
+ * Offered positions are scored by a PositionScorer in batches: their bitboards
+ * are gathered into one array, scored together once the batch is full or the
+ * beam is read, and only then ranked, in the order they were offered.
+ */
+final class Beam {
+    // positions scored at once
+    private static final int BATCH = 256;
+
+    private final int capacity;
+    private final PositionScorer scorer;
+
+    private Position[] pending = null;
+    private long[] pendingSeqs;
+    private int[] pendingScores;
+    private long[] states;
+    private int pendingCount = 0;
+
+    private Position[] items;
+    private int[] scores;
+    private long[] seqs;
+    private int size = 0;
+    private boolean overflowed = false;
+
+
+    /**
+     * Creates a beam that ranks positions by their border length.
+     */
+    Beam(int capacity) {
+        this(capacity, Scorers.borderLength());
+    }
+
+
+    Beam(int capacity, PositionScorer scorer) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("beam capacity must be at least 1");
+        }
+
+        this.capacity = capacity;
+        this.scorer = scorer;
+        int initial = Math.min(capacity, 1024);
+        items = new Position[initial];
+        scores = new int[initial];
+        seqs = new long[initial];
+    }
+
+
+    int size() {
+        flush();
+        return size;
+    }
+
+
+    /**
+     * @return true if more positions have been offered than the beam can hold,
+     * in other words if pruning actually discarded something.
+     */
+    boolean overflowed() {
+        flush();
+        return overflowed;
+    }
+
+
+    void markOverflowed() {
+        overflowed = true;
+    }
+
+
+    /**
+     * Offers a position to the beam. Sequence numbers must increase from one
+     * call to the next.
+     */
+    void offer(Position p, long seq) {
+        if (pending == null) {
+            int words = p.board().words;
+            pending = new Position[BATCH];
+            pendingSeqs = new long[BATCH];
+            pendingScores = new int[BATCH];
+            states = new long[BATCH * words];
+        }
+
+        p.key(states, pendingCount * p.board().words);
+        pending[pendingCount] = p;
+        pendingSeqs[pendingCount] = seq;
+        if (++pendingCount == BATCH) {
+            flush();
+        }
+    }
+
+
+    // scores the pending positions and ranks them, in the order they were offered
+    private void flush() {
+        if (pendingCount == 0) {
+            return;
+        }
+
+        scorer.score(pending[0].board(), states, pendingCount, pendingScores);
+        for (int i = 0; i < pendingCount; i++) {
+            insert(pending[i], pendingScores[i], pendingSeqs[i]);
+            pending[i] = null;
+        }
+        pendingCount = 0;
+    }
+
+
+    private void insert(Position p, int score, long seq) {
+        if (size < capacity) {
+            if (size == items.length) {
+                int n = (int) Math.min((long) capacity, 2L * size);
+                items = Arrays.copyOf(items, n);
+                scores = Arrays.copyOf(scores, n);
+                seqs = Arrays.copyOf(seqs, n);
+            }
+            items[size] = p;
+            scores[size] = score;
+            seqs[size] = seq;
+            siftUp(size++);
+            return;
+        }
+
+        overflowed = true;
+        // a later position with the same score as the root ranks below it
+        if (score >= scores[0]) {
+            return;
+        }
+
+        items[0] = p;
+        scores[0] = score;
+        seqs[0] = seq;
+        siftDown(0);
+    }
+
+
+    /**
+     * @return the survivors in the order the next generation should be expanded:
+     * ranked by score if the beam overflowed, otherwise in the order offered.
+     */
+    List<Position> survivors() {
+        flush();
+        return overflowed ? ranked() : inOfferOrder();
+    }
+
+
+    List<Position> inOfferOrder() {
+        flush();
+        Integer[] order = order();
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(seqs[a], seqs[b]);
+            }
+        });
+        return collect(order);
+    }
+
+
+    private List<Position> ranked() {
+        Integer[] order = order();
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return worse(a, b) ? 1 : (worse(b, a) ? -1 : 0);
+            }
+        });
+        return collect(order);
+    }
+
+
+    private Integer[] order() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+
+    private List<Position> collect(Integer[] order) {
+        List<Position> l = new ArrayList<Position>(size);
+        for (int i : order) {
+            l.add(items[i]);
+        }
+        return l;
+    }
+
+
+    // true if entry a ranks below entry b
+    private boolean worse(int a, int b) {
+        if (scores[a] != scores[b]) {
+            return scores[a] > scores[b];
+        }
+        return seqs[a] > seqs[b];
+    }
+
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(i, parent)) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+
+            int worst = left;
+            int right = left + 1;
+            if (right < size && worse(right, left)) {
+                worst = right;
+            }
+
+            if (!worse(worst, i)) {
+                return;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+
+    private void swap(int a, int b) {
+        Position p = items[a];
+        items[a] = items[b];
+        items[b] = p;
+
+        int s = scores[a];
+        scores[a] = scores[b];
+        scores[b] = s;
+
+        long q = seqs[a];
+        seqs[a] = seqs[b];
+        seqs[b] = q;
+    }
+}
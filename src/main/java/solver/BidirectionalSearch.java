@@ -0,0 +1,207 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class BidirectionalSearch solves a board by meeting in the middle. It searches
+ * forward from the initial position and backward, with jumps played in reverse,
+ * from a given target position, until both sides reach the same number of pegs.
+ * A position found on both sides joins the two halves into a solution.
+ * <p>
+ * Every jump removes exactly one peg, so the two searches advance one peg count
+ * at a time and only need to be compared at the meeting peg count. Each side only
+ * goes half as deep as a forward search would, which makes the number of
+ * positions explored far smaller on the usual single-vacancy-to-single-peg
+ * problems, such as finishing in the hole that was emptied first.
+ * <p>
+ * By default both sides are searched exhaustively, which makes the answer exact.
+ * A pruning number turns both sides into beam searches, like PruningSearch.
+ */
+public class BidirectionalSearch {
+    private final Position initialPosition;
+    private final Position target;
+    private boolean useSymmetry = false;
+    private int pruningNumber = 0;
+    private PositionScorer scorer = Scorers.borderLength();
+    private int meetingPegCount = -1;
+
+    private List<Move> solution = null;
+
+
+    /**
+     * @param initialPosition position from which to search forward.
+     * @param target          position to reach, for example from <code>Board.targetPosition</code>.
+     */
+    public BidirectionalSearch(Position initialPosition, Position target) {
+        if (initialPosition.board() != target.board()) {
+            throw new RuntimeException("positions belong to different boards");
+        }
+
+        this.initialPosition = initialPosition;
+        this.target = target;
+    }
+
+
+    /**
+     * Reduces both searches by the symmetries of the board. This is only done if both
+     * the initial and the target positions are themselves symmetric; otherwise the
+     * setting is ignored.
+     */
+    public void setUseSymmetry(boolean val) {
+        useSymmetry = val;
+    }
+
+
+    /**
+     * Keeps only the best <code>prune</code> positions of every level on both sides,
+     * ranked by the scorer, compactness by default. 0, the default, searches exhaustively. With pruning the
+     * two beams may miss each other, so a failed search proves nothing.
+     */
+    public void prune(int prune) {
+        pruningNumber = prune;
+    }
+
+
+    /**
+     * Sets the heuristic that ranks positions when pruning; see
+     * {@link PruningSearch#setScorer(PositionScorer)}.
+     */
+    public void setScorer(PositionScorer scorer) {
+        if (scorer == null) {
+            throw new IllegalArgumentException("scorer may not be null");
+        }
+        this.scorer = scorer;
+    }
+
+
+    /**
+     * Sets the number of pegs at which the two searches meet. By default they meet
+     * half way between the peg counts of the initial and target positions.
+     */
+    public void setMeetingPegCount(int pegs) {
+        meetingPegCount = pegs;
+    }
+
+
+    /**
+     * @return the solution found by the last search, or null if there is none.
+     */
+    public List<Move> getSolution() {
+        return solution;
+    }
+
+
+    /**
+     * Initiates search.
+     *
+     * @return true if a solution has been found.
+     */
+    public boolean search() {
+        solution = null;
+
+        int start = initialPosition.pegCount();
+        int end = target.pegCount();
+        int meet = meetingPegCount >= 0 ? meetingPegCount : end + (start - end) / 2;
+        if (end > start || meet > start || meet < end || !initialPosition.sameClass(target)) {
+            return false;
+        }
+
+        Board board = initialPosition.board();
+        boolean symmetric = useSymmetry && initialPosition.isSymmetric() && target.isSymmetric();
+        StateKeys keys = new StateKeys(board, symmetric, 0);
+
+        List<Position> forward = new ArrayList<Position>();
+        forward.add(initialPosition);
+        for (int pegs = start; pegs > meet && forward.size() > 0; pegs--) {
+            forward = nextLevel(forward, keys, false);
+        }
+
+        List<Position> backward = new ArrayList<Position>();
+        backward.add(target);
+        for (int pegs = end; pegs < meet && backward.size() > 0; pegs++) {
+            backward = nextLevel(backward, keys, true);
+        }
+
+        if (forward.isEmpty() || backward.isEmpty()) {
+            return false;
+        }
+
+        StateMap meeting = new StateMap(keys.width(), forward.size(), StateSet.DEFAULT_LOAD_FACTOR);
+        long[] key = new long[keys.width()];
+        for (int i = 0; i < forward.size(); i++) {
+            keys.key(forward.get(i), key);
+            meeting.put(key, i);
+        }
+
+        for (Position b : backward) {
+            keys.key(b, key);
+            long i = meeting.get(key, -1);
+            if (i >= 0) {
+                solution = join(forward.get((int) i), b);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    private List<Position> nextLevel(List<Position> level, StateKeys keys, boolean backward) {
+        Dedup dedup = new Dedup(keys, null, level.size() * 4, StateSet.DEFAULT_LOAD_FACTOR);
+        Beam beam = pruningNumber > 0 ? new Beam(pruningNumber, scorer) : null;
+        List<Position> next = new ArrayList<Position>();
+        long seq = 0;
+
+        for (Position p : level) {
+            for (Position q : backward ? p.parents() : p.children()) {
+                if (dedup.add(q)) {
+                    if (beam != null) {
+                        beam.offer(q, seq++);
+                    } else {
+                        next.add(q);
+                    }
+                }
+            }
+        }
+
+        return beam != null ? beam.survivors() : next;
+    }
+
+
+    /**
+     * Joins the forward history of f with the backward history of b. When keys are
+     * symmetry reduced, f may be a reflection or rotation g of b; the backward half
+     * is then transformed by g, which leaves the (symmetric) target in place.
+     */
+    private List<Move> join(Position f, Position b) {
+        Board board = f.board();
+        Symmetry g = f.equals(b) ? null : symmetryBetween(b, f);
+
+        List<Move> moves = new ArrayList<Move>(f.getHistory());
+        for (Path p = b.path(); p != null; p = p.previous) {
+            int j = g == null ? p.jump : board.transformJump(g, p.jump);
+            moves.add(board.jump(j));
+        }
+        return moves;
+    }
+
+
+    // the symmetry of the board that turns position a into position b
+    private Symmetry symmetryBetween(Position a, Position b) {
+        Board board = a.board();
+        long[] ka = new long[board.words];
+        long[] kb = new long[board.words];
+        long[] t = new long[board.words];
+        a.key(ka);
+        b.key(kb);
+
+        for (Symmetry s : board.symmetries) {
+            s.apply(ka, t);
+            if (Position.compareKeys(t, kb) == 0) {
+                return s;
+            }
+        }
+        throw new IllegalStateException("positions are not symmetric");
+    }
+}
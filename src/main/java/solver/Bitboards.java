@@ -0,0 +1,49 @@
+package solver;
+
+/**
+ * Bitboards holds word-parallel operations on the multi-word bitboards of
+ * Position, for code that looks at every cell of a position at once rather
+ * than one peg at a time. Together with the column masks of Board they tell,
+ * for every cell at once, whether its neighbour on one side holds a peg.
+ */
+final class Bitboards {
+
+    private Bitboards() {
+    }
+
+
+    /**
+     * @return word <code>w</code> of the bitboard at <code>states[offset]</code>
+     * shifted <code>n</code> bits towards lower cell indices: bit i of the result
+     * is bit i + n of the bitboard, 0 past its end. With n = 1 this is the right
+     * neighbour of every cell, with n = X the one below.
+     */
+    static long down(long[] states, int offset, int words, int w, int n) {
+        int from = w + (n >>> 6);
+        int bits = n & 63;
+        long low = from < words ? states[offset + from] : 0;
+        if (bits == 0) {
+            return low;
+        }
+        long high = from + 1 < words ? states[offset + from + 1] : 0;
+        return (low >>> bits) | (high << (64 - bits));
+    }
+
+
+    /**
+     * @return word <code>w</code> of the bitboard shifted <code>n</code> bits
+     * towards higher cell indices: bit i of the result is bit i - n of the
+     * bitboard, 0 before its start. With n = 1 this is the left neighbour of
+     * every cell, with n = X the one above.
+     */
+    static long up(long[] states, int offset, int words, int w, int n) {
+        int from = w - (n >>> 6);
+        int bits = n & 63;
+        long high = from >= 0 ? states[offset + from] : 0;
+        if (bits == 0) {
+            return high;
+        }
+        long low = from - 1 >= 0 ? states[offset + from - 1] : 0;
+        return (high << bits) | (low >>> (64 - bits));
+    }
+}
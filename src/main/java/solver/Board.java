@@ -1,28 +1,86 @@
 package solver;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
 
 /**
  * Board represents the geometry of a particular Peg Solitaire board.
  * The representation is a rectangular array X by Y in dimension. The places
  * in the array that have a hole that can by occupied by a peg are marked
- * with 1s and the disallowed positions are marked with 0s.
+ * with 1s and the disallowed positions are marked with 0s. Which holes lie in
+ * a line, and so can be jumped along, is up to the board's {@link Geometry}:
+ * rows and columns unless another one is given.
  */
 public final class Board {
+    // fixed so that position hashes are reproducible from run to run
+    private static final long ZOBRIST_SEED = 0x5eed50117a12eL;
+
     public final int X;
     public final int Y;
 
-    final boolean verticalFlip;
-    final boolean horizontalFlip;
-    final boolean leftDiagonalFlip; // top left to bottom right
-    final boolean rightDiagonalFlip; // top right to bottom left
-    final boolean rotate90;
-    final boolean rotate180;
-    final boolean rotate270;
+    final Geometry geometry;
+
+    // the reflections and rotations, other than the identity, that map the
+    // holes of the board onto themselves and its jumps onto jumps
+    final Symmetry[] symmetries;
+
+    // number of 64-bit words needed to hold one bit per cell of the grid
+    final int words;
 
     private final boolean[] holes;
+    private final long[] holeMask;
+
+    // every cell of the grid but those in the first or the last column, to
+    // keep bitboards shifted by one cell from wrapping around to another row
+    final long[] notFirstColumn;
+    final long[] notLastColumn;
+
+    // Jump table: every legal (from, over, to) triple of the board, ordered by
+    // the from cell. Jumps starting at cell i are jumpStart[i] .. jumpStart[i+1]-1.
+    final int jumpCount;
+    final int[] jumpFrom;
+    final int[] jumpOver;
+    final int[] jumpTo;
+    private final int[] jumpStart;
+    private final Move[] jumpMoves;
+
+    // change of the two halves of the Zobrist hash when jump j is played
+    final long[] jumpZobrist;
+    final long[] jumpZobristHigh;
+
+    // operations on bitboards of this board's size
+    final StateLayout layout;
+
+    // neighbouring holes along the lines of the geometry, for the scorers;
+    // null for the orthogonal geometry, whose neighbours are found by shifting
+    final Neighbours neighbours;
+
+    // Zobrist keys: a random 64-bit value for every hole. The hash of a position
+    // is the xor of the keys of its occupied holes, so a jump updates it with
+    // three xors. Boards of more than one word also get a second, independent
+    // set of keys that extends the hash to 128 bits.
+    final long[] zobrist;
+    final long[] zobristHigh;
+
+    // position class masks, computed on first use; see classMasks()
+    private volatile long[][] classMasks;
+
+    // distance of every cell to the centre of the grid, computed on first use;
+    // see centerDistances()
+    private volatile int[] centerDistances;
 
 
     public Board(int x, int y, int[] holes) {
+        this(x, y, holes, Geometry.orthogonal());
+    }
+
+
+    /**
+     * @param geometry decides which jumps can be played between the holes.
+     */
+    public Board(int x, int y, int[] holes, Geometry geometry) {
         if (x < 1 || y < 1) {
             throw new RuntimeException("Board dimensions may not be smaller than 1x1.");
         }
@@ -33,34 +91,137 @@ public final class Board {
 
         X = x;
         Y = y;
+        this.geometry = geometry;
 
         this.holes = new boolean[x * y];
+        words = (x * y + 63) >>> 6;
+        holeMask = new long[words];
 
         for (int i = 0; i < this.holes.length; i++) {
             if (holes[i] == 1) {
                 this.holes[i] = true;
+                holeMask[i >>> 6] |= 1L << i;
+            }
+        }
+
+        notFirstColumn = new long[words];
+        notLastColumn = new long[words];
+        for (int i = 0; i < x * y; i++) {
+            if (i % x != 0) {
+                notFirstColumn[i >>> 6] |= 1L << i;
+            }
+            if (i % x != x - 1) {
+                notLastColumn[i >>> 6] |= 1L << i;
+            }
+        }
+
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+        zobrist = new long[x * y];
+        zobristHigh = words > 1 ? new long[x * y] : null;
+        for (int i = 0; i < this.holes.length; i++) {
+            if (this.holes[i]) {
+                zobrist[i] = random.nextLong();
+                if (zobristHigh != null) {
+                    zobristHigh[i] = random.nextLong();
+                }
+            }
+        }
+
+        int[][] jumps = geometry.jumps(x, y, this.holes);
+        int n = jumps.length;
+        jumpCount = n;
+        jumpFrom = new int[n];
+        jumpOver = new int[n];
+        jumpTo = new int[n];
+        jumpStart = new int[x * y + 1];
+        for (int j = 0, i = 0; j < n; j++) {
+            jumpFrom[j] = jumps[j][0];
+            jumpOver[j] = jumps[j][1];
+            jumpTo[j] = jumps[j][2];
+            while (i <= jumpFrom[j]) {
+                jumpStart[i++] = j;
+            }
+        }
+        for (int i = n == 0 ? 0 : jumpFrom[n - 1] + 1; i <= x * y; i++) {
+            jumpStart[i] = n;
+        }
+
+        jumpMoves = new Move[n];
+        jumpZobrist = new long[n];
+        jumpZobristHigh = new long[n];
+
+        for (int j = 0; j < n; j++) {
+            jumpMoves[j] = new Move(jumpFrom[j] % X, jumpFrom[j] / X, jumpTo[j] % X, jumpTo[j] / X);
+            jumpZobrist[j] = zobrist[jumpFrom[j]] ^ zobrist[jumpOver[j]] ^ zobrist[jumpTo[j]];
+            if (zobristHigh != null) {
+                jumpZobristHigh[j] = zobristHigh[jumpFrom[j]] ^ zobristHigh[jumpOver[j]] ^ zobristHigh[jumpTo[j]];
             }
         }
 
-        SymmetryHelper h = new SymmetryHelper(X, Y, this.holes);
+        List<Symmetry> found = new ArrayList<Symmetry>();
+        for (int t = 0; t < geometry.transformCount(); t++) {
+            int[] map = symmetryMap(geometry.transform(t));
+            if (map != null) {
+                found.add(new Symmetry(geometry.transformName(t), map, words));
+            }
+        }
+        symmetries = found.toArray(new Symmetry[found.size()]);
+        layout = StateLayout.forBoard(this);
+        neighbours = geometry == Geometry.orthogonal() ? null : new Neighbours(this, geometry.neighbours(x, y, this.holes));
+    }
 
-        verticalFlip = h.equals(h.verticalFlip());
-        horizontalFlip = h.equals(h.horizontalFlip());
-        rotate180 = h.equals(h.rotate180());
 
-        if (X == Y) {
-            leftDiagonalFlip = h.equals(h.leftDiagonalFlip());
-            rightDiagonalFlip = h.equals(h.rightDiagonalFlip());
-            rotate90 = h.equals(h.rotate90());
-            rotate270 = h.equals(h.rotate270());
-        } else {
-            leftDiagonalFlip = false;
-            rightDiagonalFlip = false;
-            rotate90 = false;
-            rotate270 = false;
+    /**
+     * @return the cell that every cell is carried to by the linear map m of the
+     * geometry, translated so that the holes stay in their bounding box, or null
+     * if that does not map the holes onto holes and the jumps onto jumps. Cells
+     * that are not holes stay in place.
+     */
+    private int[] symmetryMap(int[] m) {
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int imageX = Integer.MAX_VALUE;
+        int imageY = Integer.MAX_VALUE;
+        for (int i = 0; i < holes.length; i++) {
+            if (holes[i]) {
+                int cx = i % X;
+                int cy = i / X;
+                minX = Math.min(minX, cx);
+                minY = Math.min(minY, cy);
+                imageX = Math.min(imageX, m[0] * cx + m[1] * cy);
+                imageY = Math.min(imageY, m[2] * cx + m[3] * cy);
+            }
         }
+
+        int[] map = new int[holes.length];
+        for (int i = 0; i < holes.length; i++) {
+            map[i] = i;
+            if (!holes[i]) {
+                continue;
+            }
+
+            int cx = i % X;
+            int cy = i / X;
+            int tx = m[0] * cx + m[1] * cy - imageX + minX;
+            int ty = m[2] * cx + m[3] * cy - imageY + minY;
+            if (tx < 0 || ty < 0 || tx >= X || ty >= Y || !holes[ty * X + tx]) {
+                return null;
+            }
+            map[i] = ty * X + tx;
+        }
+
+        for (int j = 0; j < jumpCount; j++) {
+            int from = map[jumpFrom[j]];
+            int to = map[jumpTo[j]];
+            int k = jumpIndex(from % X, from / X, to % X, to / X);
+            if (k < 0 || jumpOver[k] != map[jumpOver[j]]) {
+                return null;
+            }
+        }
+        return map;
     }
 
+
     public Position initialPosition(int x, int y) {
         Position position = new Position(this);
         position.set(x, y, false);
@@ -68,10 +229,240 @@ public final class Board {
     }
 
 
+    /**
+     * @return a position with a single peg, in hole (x, y): the usual goal of the game.
+     */
+    public Position targetPosition(int x, int y) {
+        if (!allowed(x, y)) {
+            throw new RuntimeException("target is not a hole of the board");
+        }
+
+        Position position = new Position(this);
+        for (int i = 0; i < holes.length; i++) {
+            position.set(i, false);
+        }
+        position.set(x, y, true);
+        return position;
+    }
+
+
+    public Geometry geometry() {
+        return geometry;
+    }
+
+
+    /**
+     * @return number of distinct jumps on this board, that is (from, over, to)
+     * triples of holes in a line of its geometry.
+     */
+    public int jumpCount() {
+        return jumpCount;
+    }
+
+
+    /**
+     * @param j index of the jump, between 0 and <code>jumpCount() - 1</code>.
+     * @return jump j as a Move from its start hole to its landing hole.
+     */
+    public Move jump(int j) {
+        return jumpMoves[j];
+    }
+
+
+    /**
+     * Finds a move in the jump table.
+     *
+     * @return index of the jump from (x1, y1) to (x2, y2), or -1 if there is no such jump.
+     */
+    public int jumpIndex(int x1, int y1, int x2, int y2) {
+        if (x1 < 0 || y1 < 0 || x1 >= X || y1 >= Y) {
+            return -1;
+        }
+        // off the grid, the landing hole would wrap around into another row
+        if (x2 < 0 || y2 < 0 || x2 >= X || y2 >= Y) {
+            return -1;
+        }
+
+        int i = y1 * X + x1;
+        int target = y2 * X + x2;
+        for (int j = jumpStart[i]; j < jumpStart[i + 1]; j++) {
+            if (jumpTo[j] == target) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * @return the 64-bit Zobrist hash of the given bitboard.
+     */
+    long zobristHash(long[] bits) {
+        return zobristHash(bits, zobrist);
+    }
+
+
+    /**
+     * @return the upper half of the 128-bit Zobrist hash of the given bitboard,
+     * or 0 for single-word boards, which have no need for it.
+     */
+    long zobristHashHigh(long[] bits) {
+        return zobristHigh == null ? 0L : zobristHash(bits, zobristHigh);
+    }
+
+
+    private static long zobristHash(long[] bits, long[] keys) {
+        long h = 0;
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                h ^= keys[(w << 6) + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
+            }
+        }
+        return h;
+    }
+
+
+    /**
+     * @return index of the jump that symmetry s turns jump j into.
+     */
+    int transformJump(Symmetry s, int j) {
+        int from = s.apply(jumpFrom[j]);
+        int to = s.apply(jumpTo[j]);
+        return jumpIndex(from % X, from / X, to % X, to / X);
+    }
+
+
+    /**
+     * @return the symmetry of this board that undoes s.
+     */
+    Symmetry inverse(Symmetry s) {
+        for (Symmetry t : symmetries) {
+            boolean inverse = true;
+            for (int i = 0; i < holes.length && inverse; i++) {
+                inverse = t.apply(s.apply(i)) == i;
+            }
+            if (inverse) {
+                return t;
+            }
+        }
+        throw new IllegalStateException("symmetry " + s.name + " has no inverse on this board");
+    }
+
+
     boolean allowed(int i) {
         return holes[i];
     }
 
+
+    /**
+     * <p>Returns the masks that define the position classes of the board. A jump
+     * flips its three holes, so the parity of the pegs under a mask is left
+     * unchanged by every jump exactly when each jump covers an even number of
+     * the mask's holes. Two positions whose parities differ under any of these
+     * masks can never be played into one another.</p>
+     *
+     * <p>Such masks are the vectors orthogonal, over GF(2), to every jump, and
+     * the ones returned are a basis of them found by Gaussian elimination on the
+     * jump table. On the usual boards, with jumps along rows and columns only,
+     * they span the familiar rule-of-three colourings: the holes with
+     * (x + y) mod 3 = c, or (x - y) mod 3 = c, taken two colours at a time.</p>
+     */
+    long[][] classMasks() {
+        long[][] masks = classMasks;
+        if (masks == null) {
+            masks = computeClassMasks();
+            classMasks = masks;
+        }
+        return masks;
+    }
+
+
+    /**
+     * @return the Manhattan distance of every cell to the centre of the grid,
+     * doubled so that the centre of an even sized grid is a whole number, for
+     * <code>Scorers.distanceToCenter()</code>.
+     */
+    int[] centerDistances() {
+        int[] distances = centerDistances;
+        if (distances == null) {
+            distances = new int[X * Y];
+            for (int y = 0; y < Y; y++) {
+                for (int x = 0; x < X; x++) {
+                    distances[y * X + x] = Math.abs(2 * x - (X - 1)) + Math.abs(2 * y - (Y - 1));
+                }
+            }
+            centerDistances = distances;
+        }
+        return distances;
+    }
+
+
+    private long[][] computeClassMasks() {
+        long[][] rows = new long[jumpCount][];
+        for (int j = 0; j < jumpCount; j++) {
+            rows[j] = new long[words];
+            for (int i : new int[]{jumpFrom[j], jumpOver[j], jumpTo[j]}) {
+                rows[j][i >>> 6] |= 1L << i;
+            }
+        }
+
+        // reduced row echelon form; pivotRow[i] is the row whose pivot is hole i, or -1
+        int[] pivotRow = new int[holes.length];
+        Arrays.fill(pivotRow, -1);
+        int rank = 0;
+        for (int i = 0; i < holes.length && rank < rows.length; i++) {
+            int r = rank;
+            while (r < rows.length && (rows[r][i >>> 6] & (1L << i)) == 0) {
+                r++;
+            }
+            if (r == rows.length) {
+                continue;
+            }
+
+            long[] pivot = rows[r];
+            rows[r] = rows[rank];
+            rows[rank] = pivot;
+            for (int k = 0; k < rows.length; k++) {
+                if (k != rank && (rows[k][i >>> 6] & (1L << i)) != 0) {
+                    for (int w = 0; w < words; w++) {
+                        rows[k][w] ^= pivot[w];
+                    }
+                }
+            }
+            pivotRow[i] = rank++;
+        }
+
+        // every hole that is not a pivot gives one basis vector: the hole
+        // itself plus the pivots of the rows that contain it
+        List<long[]> masks = new ArrayList<long[]>();
+        for (int i = 0; i < holes.length; i++) {
+            if (!holes[i] || pivotRow[i] >= 0) {
+                continue;
+            }
+
+            long[] mask = new long[words];
+            mask[i >>> 6] |= 1L << i;
+            for (int p = 0; p < holes.length; p++) {
+                if (pivotRow[p] >= 0 && (rows[pivotRow[p]][i >>> 6] & (1L << i)) != 0) {
+                    mask[p >>> 6] |= 1L << p;
+                }
+            }
+            masks.add(mask);
+        }
+        return masks.toArray(new long[masks.size()][]);
+    }
+
+
+    /**
+     * @return bit mask of all the holes on the board, one bit per cell in
+     * row-major order, packed into <code>words</code> longs.
+     */
+    long[] holeMask() {
+        return holeMask;
+    }
+
     public boolean allowed(int x, int y) {
         if (x < 0 || y < 0 || x >= X || y >= Y) {
             throw new RuntimeException("array index out of bounds");
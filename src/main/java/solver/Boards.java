@@ -0,0 +1,116 @@
+package solver;
+
+/**
+ * Boards is a catalogue of well known Peg Solitaire boards.
+ * Every call returns a new Board.
+ */
+public final class Boards {
+
+    private Boards() {
+    }
+
+
+    /**
+     * @return the 33-hole English (cross shaped) board on a 7x7 grid.
+     */
+    public static Board english() {
+        return new Board(7, 7, new int[]{
+                0, 0, 1, 1, 1, 0, 0,
+                0, 0, 1, 1, 1, 0, 0,
+                1, 1, 1, 1, 1, 1, 1,
+                1, 1, 1, 1, 1, 1, 1,
+                1, 1, 1, 1, 1, 1, 1,
+                0, 0, 1, 1, 1, 0, 0,
+                0, 0, 1, 1, 1, 0, 0
+        });
+    }
+
+
+    /**
+     * @return the 37-hole European (French) board on a 7x7 grid.
+     */
+    public static Board european() {
+        return new Board(7, 7, new int[]{
+                0, 0, 1, 1, 1, 0, 0,
+                0, 1, 1, 1, 1, 1, 0,
+                1, 1, 1, 1, 1, 1, 1,
+                1, 1, 1, 1, 1, 1, 1,
+                1, 1, 1, 1, 1, 1, 1,
+                0, 1, 1, 1, 1, 1, 0,
+                0, 0, 1, 1, 1, 0, 0
+        });
+    }
+
+
+    /**
+     * @return the 45-hole Wiegleb board, a cross with arms three holes long, on a 9x9 grid.
+     */
+    public static Board wiegleb() {
+        int[] holes = new int[81];
+        for (int y = 0; y < 9; y++) {
+            for (int x = 0; x < 9; x++) {
+                if ((x >= 3 && x <= 5) || (y >= 3 && y <= 5)) {
+                    holes[y * 9 + x] = 1;
+                }
+            }
+        }
+        return new Board(9, 9, holes);
+    }
+
+
+    /**
+     * @return the 15-hole triangular board; see {@link #triangular(int)}.
+     */
+    public static Board triangular15() {
+        return triangular(5);
+    }
+
+
+    /**
+     * @return the triangular board with <code>side</code> holes on every side,
+     * 15 holes for side 5 and 21 for side 6, with the jumps of the triangular
+     * lattice. It takes the lower left half of a side by side grid: row y holds
+     * holes 0 to y.
+     */
+    public static Board triangular(int side) {
+        int[] holes = new int[side * side];
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x <= y; x++) {
+                holes[y * side + x] = 1;
+            }
+        }
+        return new Board(side, side, holes, Geometry.triangular());
+    }
+
+
+    /**
+     * @return the hexagonal board with <code>side</code> holes on every side,
+     * 37 holes for side 4, with the jumps of the triangular lattice. It is drawn
+     * on a grid 2 * side - 1 holes wide, where it leaves out the corners above
+     * the main diagonal and below it.
+     */
+    public static Board hexagonal(int side) {
+        int n = 2 * side - 1;
+        int[] holes = new int[n * n];
+        for (int y = 0; y < n; y++) {
+            for (int x = 0; x < n; x++) {
+                if (Math.abs(x - y) < side) {
+                    holes[y * n + x] = 1;
+                }
+            }
+        }
+        return new Board(n, n, holes, Geometry.triangular());
+    }
+
+
+    /**
+     * @return a board with a hole in every cell of an x by y rectangle.
+     */
+    public static Board rectangle(int x, int y) {
+        int[] holes = new int[x * y];
+        for (int i = 0; i < holes.length; i++) {
+            holes[i] = 1;
+        }
+        return new Board(x, y, holes);
+    }
+}
@@ -0,0 +1,73 @@
+package solver;
+
+/**
+ * Cancellation tells a running search when to stop: when another thread has
+ * cancelled it, when its deadline has passed, or when it has generated more
+ * children than its node budget allows. The expansion loops poll it once per
+ * parent, so a search stops within one parent's worth of work of being asked
+ * to, however large its generations are. Nodes are only charged once a
+ * generation is complete.
+ */
+final class Cancellation {
+    private final long deadline;
+    private final long nodeBudget;
+    private long nodes = 0;
+    private volatile boolean cancelled = false;
+    private volatile boolean timedOut = false;
+    private volatile boolean outOfNodes = false;
+
+
+    /**
+     * @param timeLimit  nanoseconds the search may run from now, or 0 for no limit.
+     * @param nodeBudget number of children the search may generate, or 0 for no limit.
+     */
+    Cancellation(long timeLimit, long nodeBudget) {
+        this.deadline = timeLimit > 0 ? System.nanoTime() + timeLimit : 0;
+        this.nodeBudget = nodeBudget;
+    }
+
+
+    void cancel() {
+        cancelled = true;
+    }
+
+
+    /**
+     * Charges generated children to the node budget. Called by the search thread only.
+     */
+    void addNodes(long n) {
+        nodes += n;
+        if (nodeBudget > 0 && nodes > nodeBudget) {
+            outOfNodes = true;
+        }
+    }
+
+
+    /**
+     * @return true if the search should stop.
+     */
+    boolean stopped() {
+        if (cancelled || timedOut || outOfNodes) {
+            return true;
+        }
+        if (deadline != 0 && System.nanoTime() - deadline >= 0) {
+            timedOut = true;
+        }
+        return timedOut;
+    }
+
+
+    boolean cancelled() {
+        return cancelled;
+    }
+
+
+    boolean timedOut() {
+        return timedOut;
+    }
+
+
+    boolean outOfNodes() {
+        return outOfNodes;
+    }
+}
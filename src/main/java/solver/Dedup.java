@@ -0,0 +1,60 @@
+package solver;
+
+/**
+ * Dedup tells whether a position has been seen before in the current
+ * generation. It wraps a StateSet with the StateKeys that produce its keys.
+ * <p>
+ * When built with a second, exact StateKeys it also verifies hashed keys:
+ * every position is looked up under both keys, and a position whose hash is
+ * already known while its exact key is not is a hash collision, reported
+ * with an IllegalStateException. This is meant for testing only, as it holds
+ * the exact keys the hashes were supposed to save.
+ */
+final class Dedup {
+    private final StateKeys keys;
+    private final StateSet set;
+    private final long[] key;
+
+    private final StateKeys exactKeys;
+    private final StateSet exactSet;
+    private final long[] exactKey;
+
+
+    Dedup(StateKeys keys, StateKeys exactKeys, int expectedSize, float loadFactor) {
+        this.keys = keys;
+        this.set = new StateSet(keys.width(), expectedSize, loadFactor);
+        this.key = new long[keys.width()];
+
+        this.exactKeys = exactKeys;
+        if (exactKeys != null) {
+            exactSet = new StateSet(exactKeys.width(), expectedSize, loadFactor);
+            exactKey = new long[exactKeys.width()];
+        } else {
+            exactSet = null;
+            exactKey = null;
+        }
+    }
+
+
+    /**
+     * @return true if the position was not seen before.
+     */
+    boolean add(Position p) {
+        keys.key(p, key);
+        boolean added = set.add(key);
+
+        if (exactSet != null) {
+            exactKeys.key(p, exactKey);
+            if (exactSet.add(exactKey) != added) {
+                throw new IllegalStateException("hash key collision");
+            }
+        }
+
+        return added;
+    }
+
+
+    int size() {
+        return set.size();
+    }
+}
@@ -0,0 +1,305 @@
+package solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DiskFrontier runs the exhaustive breadth-first search of PruningSearch with
+ * every generation kept in a memory-mapped RecordFile instead of on the heap.
+ * Only one partition of one generation's dedup keys is in memory at a time.
+ * <p>
+ * A generation is built in three passes:
+ * <ol>
+ * <li>the previous generation is streamed in and every child is appended to one
+ * of several partition files, chosen by the hash of its dedup key, together with
+ * its sequence number in generation order;</li>
+ * <li>each partition is deduplicated on its own with a StateSet, keeping the
+ * first occurrence of every position, since a partition is in sequence order;</li>
+ * <li>the partitions are merged back by sequence number.</li>
+ * </ol>
+ * The generation files hold the same positions, in the same order, as the
+ * generations that PruningSearch builds in memory. Every record also holds the
+ * index of its parent and the jump that led to it, so solutions are rebuilt by
+ * walking the files back to the initial position. The files of a search are
+ * kept in a temporary directory that {@link #close()} deletes.
+ */
+final class DiskFrontier {
+    private final Position initialPosition;
+    private final Board board;
+    private final StateKeys keys;
+    private final TargetFilter target;
+    private final float loadFactor;
+    private final int partitionSize;
+    private final File directory;
+    private final int words;
+    private final int width;
+    private final SearchMetrics metrics;
+    private final Cancellation cancellation;
+
+    private final List<RecordFile> generations = new ArrayList<RecordFile>();
+    private long lastGenerationSize = 1;
+
+
+    /**
+     * @param parent        directory in which to create the temporary directory of the search.
+     * @param partitionSize largest number of positions to deduplicate in memory at once.
+     * @param metrics       receives the counts of every generation.
+     * @param cancellation  stops the search, leaving it without solutions.
+     */
+    DiskFrontier(File parent, Position initialPosition, StateKeys keys, TargetFilter target,
+                 float loadFactor, int partitionSize, SearchMetrics metrics, Cancellation cancellation) {
+        this.initialPosition = initialPosition;
+        this.board = initialPosition.board();
+        this.keys = keys;
+        this.target = target;
+        this.loadFactor = loadFactor;
+        this.partitionSize = partitionSize;
+        this.words = board.words;
+        this.width = keys.width();
+        this.metrics = metrics;
+        this.cancellation = cancellation;
+
+        try {
+            directory = Files.createTempDirectory(parent.toPath(), "frontier").toFile();
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot create frontier directory in " + parent, e);
+        }
+    }
+
+
+    /**
+     * Searches generation by generation until one holds target positions.
+     *
+     * @return the target positions of that generation, with their histories,
+     * or an empty list if the search space runs out or the search is stopped first.
+     */
+    List<Position> search() {
+        RecordFile current = new RecordFile(file("gen", 0), words + 2);
+        long[] record = new long[words + 2];
+        initialPosition.key(record);
+        record[words] = -1;
+        record[words + 1] = -1;
+        current.append(record);
+        generations.add(current);
+
+        int pegs = initialPosition.pegCount();
+        List<Position> solutions = new ArrayList<Position>();
+        while (current.size() > 0 && solutions.isEmpty()) {
+            metrics.startGeneration();
+            ExpansionStats stats = new ExpansionStats();
+            long parents = current.size();
+            current = nextGeneration(current, stats);
+            generations.add(current);
+            pegs--;
+            if (cancellation.stopped()) {
+                break;
+            }
+
+            // every position of a generation has the same number of pegs
+            if (pegs == 1) {
+                for (long i = 0; i < current.size(); i++) {
+                    current.read(i, record);
+                    if (target.isTarget(restore(record))) {
+                        solutions.add(rebuild(generations.size() - 1, i));
+                    }
+                }
+            }
+            metrics.endGeneration(generations.size() - 1, pegs, parents, stats, current.size(), solutions.size());
+        }
+        return solutions;
+    }
+
+
+    /**
+     * @return number of positions in the last generation built.
+     */
+    long lastGenerationSize() {
+        return lastGenerationSize;
+    }
+
+
+    /**
+     * Deletes the files of the search.
+     */
+    void close() {
+        for (RecordFile f : generations) {
+            f.delete();
+        }
+        generations.clear();
+        directory.delete();
+    }
+
+
+    private RecordFile nextGeneration(RecordFile parents, ExpansionStats stats) {
+        int g = generations.size();
+        int partitionCount = partitions(parents.size());
+
+        // pass 1: children, partitioned by key: key, bits, parent, jump, sequence
+        RecordFile[] parts = new RecordFile[partitionCount];
+        for (int k = 0; k < partitionCount; k++) {
+            parts[k] = new RecordFile(file("part" + k + "-", g), width + words + 3);
+        }
+
+        long[] record = new long[words + 2];
+        long[] child = new long[width + words + 3];
+        long[] key = new long[width];
+        long[] bits = new long[words];
+        long seq = 0;
+        for (long i = 0; i < parents.size() && !cancellation.stopped(); i++) {
+            parents.read(i, record);
+            for (Position p : restore(record).children()) {
+                stats.generated++;
+                if (!target.feasible(p)) {
+                    stats.infeasible++;
+                    continue;
+                }
+                keys.key(p, key);
+                p.key(bits);
+                System.arraycopy(key, 0, child, 0, width);
+                System.arraycopy(bits, 0, child, width, words);
+                child[width + words] = i;
+                child[width + words + 1] = p.path().jump;
+                child[width + words + 2] = seq++;
+                parts[partition(key, partitionCount)].append(child);
+            }
+        }
+
+        // pass 2: first occurrence of every key, per partition: bits, parent, jump, sequence
+        RecordFile[] kept = new RecordFile[partitionCount];
+        long[] survivor = new long[words + 3];
+        for (int k = 0; k < partitionCount; k++) {
+            kept[k] = new RecordFile(file("kept" + k + "-", g), words + 3);
+            StateSet dedup = new StateSet(width, (int) Math.min(parts[k].size(), Integer.MAX_VALUE - 8), loadFactor);
+            for (long r = 0; r < parts[k].size(); r++) {
+                parts[k].read(r, child);
+                System.arraycopy(child, 0, key, 0, width);
+                if (dedup.add(key)) {
+                    System.arraycopy(child, width, survivor, 0, words + 3);
+                    kept[k].append(survivor);
+                }
+            }
+            parts[k].delete();
+        }
+
+        // pass 3: merge the partitions back into generation order, through a
+        // min-heap of the partitions ordered by the sequence number of their head
+        RecordFile next = new RecordFile(file("gen", g), words + 2);
+        long[] heads = new long[partitionCount];
+        long[][] head = new long[partitionCount][words + 3];
+        int[] heap = new int[partitionCount];
+        int heapSize = 0;
+        for (int k = 0; k < partitionCount; k++) {
+            if (kept[k].size() > 0) {
+                kept[k].read(0, head[k]);
+                heap[heapSize++] = k;
+            }
+        }
+        for (int h = heapSize / 2 - 1; h >= 0; h--) {
+            siftDown(heap, heapSize, h, head);
+        }
+
+        while (heapSize > 0) {
+            int k = heap[0];
+            System.arraycopy(head[k], 0, record, 0, words + 2);
+            next.append(record);
+
+            if (++heads[k] < kept[k].size()) {
+                kept[k].read(heads[k], head[k]);
+            } else {
+                heap[0] = heap[--heapSize];
+            }
+            siftDown(heap, heapSize, 0, head);
+        }
+
+        for (RecordFile f : kept) {
+            f.delete();
+        }
+        lastGenerationSize = next.size();
+        stats.unique = next.size();
+        return next;
+    }
+
+
+    private void siftDown(int[] heap, int size, int h, long[][] head) {
+        int seq = words + 2;
+        while (true) {
+            int smallest = h;
+            int left = 2 * h + 1;
+            int right = left + 1;
+            if (left < size && head[heap[left]][seq] < head[heap[smallest]][seq]) {
+                smallest = left;
+            }
+            if (right < size && head[heap[right]][seq] < head[heap[smallest]][seq]) {
+                smallest = right;
+            }
+            if (smallest == h) {
+                return;
+            }
+            int t = heap[h];
+            heap[h] = heap[smallest];
+            heap[smallest] = t;
+            h = smallest;
+        }
+    }
+
+
+    // enough partitions for each to hold about partitionSize children, estimated
+    // from the branching factor of the previous generation, rounded up to a
+    // power of two
+    private int partitions(long parents) {
+        long expected = Math.max(parents * 4, lastGenerationSize);
+        long count = Math.max(1, Math.min((expected + partitionSize - 1) / partitionSize, 1024));
+        return Integer.highestOneBit((int) count * 2 - 1);
+    }
+
+
+    /**
+     * @return partition of a key among a power of two of them. The partition
+     * is taken from the top bits of the key's hash: StateSet takes the slot of
+     * the key from its bottom bits, which would otherwise be the same for every
+     * key of a partition and leave most of its dedup table unused.
+     */
+    static int partition(long[] key, int partitionCount) {
+        if (partitionCount == 1) {
+            return 0;
+        }
+        return (int) (StateSet.hash(key, 0, key.length) >>> (64 - Integer.numberOfTrailingZeros(partitionCount)));
+    }
+
+
+    // position held by a generation record
+    private Position restore(long[] record) {
+        long[] bits = new long[words];
+        System.arraycopy(record, 0, bits, 0, words);
+        return Position.restore(board, bits);
+    }
+
+
+    // the target position at index i of generation g, replayed from the initial
+    // position so that it carries its history
+    private Position rebuild(int g, long i) {
+        List<Integer> jumps = new ArrayList<Integer>();
+        long[] record = new long[words + 2];
+        for (int k = g; k > 0; k--) {
+            generations.get(k).read(i, record);
+            jumps.add((int) record[words + 1]);
+            i = record[words];
+        }
+        Collections.reverse(jumps);
+
+        Position p = initialPosition;
+        for (int j : jumps) {
+            p = p.child(j);
+        }
+        return p;
+    }
+
+
+    private File file(String prefix, int generation) {
+        return new File(directory, prefix + generation);
+    }
+}
@@ -0,0 +1,81 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Escalation keeps the generations of a beam search whose pruning number is
+ * widened round by round, and decides which of them the next, wider round
+ * resumes from; see {@link PruningSearch#setEscalation(int, int)}.
+ * <p>
+ * A round resumes at first from four generations before the dead end of the
+ * round before, then from twice as far back every round. It never backs up
+ * further than the deepest generation that no beam has cut yet, since every
+ * wider beam would rebuild the same generations up to there.
+ */
+final class Escalation {
+    private final int maxPruningNumber;
+    private final int factor;
+
+    // retained.get(g) is generation g of the current round
+    private final List<List<Position>> retained = new ArrayList<List<Position>>();
+    // deepest generation that no beam has cut, and so that every wider beam rebuilds as is
+    private int exactDepth = 0;
+    private int backoff = 4;
+    private boolean exact = true;
+
+
+    /**
+     * @param first the generation every round starts from, unless it resumes further on.
+     */
+    Escalation(List<Position> first, int maxPruningNumber, int factor) {
+        this.maxPruningNumber = maxPruningNumber;
+        this.factor = factor;
+        retained.add(first);
+    }
+
+
+    /**
+     * @return the generation the current round resumes from.
+     */
+    List<Position> resumePoint() {
+        return retained.get(retained.size() - 1);
+    }
+
+
+    /**
+     * Keeps the next generation of the current round.
+     *
+     * @param cut whether the beam left out some of the children of the generation before.
+     */
+    void retain(List<Position> generation, boolean cut) {
+        if (generation.isEmpty()) {
+            return;
+        }
+        retained.add(generation);
+        exact = exact && !cut;
+        if (exact) {
+            exactDepth = retained.size() - 1;
+        }
+    }
+
+
+    /**
+     * @return the pruning number of the round after one with pruning number
+     * <code>width</code>, which is <code>width</code> itself once the maximum is reached.
+     */
+    int widen(int width) {
+        return (int) Math.min(maxPruningNumber, (long) width * factor);
+    }
+
+
+    /**
+     * Drops the generations past the point the next round resumes from.
+     */
+    void backOff() {
+        int resume = Math.max(exactDepth, retained.size() - 1 - backoff);
+        retained.subList(resume + 1, retained.size()).clear();
+        exact = resume == exactDepth;
+        backoff *= 2;
+    }
+}
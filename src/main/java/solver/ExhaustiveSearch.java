@@ -0,0 +1,226 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class ExhaustiveSearch is an exact depth-first solver, the counterpart of the
+ * heuristic PruningSearch. It never discards a line of play that could lead to a
+ * solution, so when it says a board cannot be solved, it cannot.
+ * <p>
+ * What keeps the search tractable is a transposition table of dead positions:
+ * every position whose whole subtree has been searched without reaching the
+ * target is recorded, optionally reduced by the symmetries of the board, and
+ * is never expanded again, however many move orders lead back to it.
+ */
+public class ExhaustiveSearch {
+
+    /**
+     * Receives the solutions found by {@link #enumerate(SolutionVisitor)}.
+     */
+    public interface SolutionVisitor {
+        /**
+         * @param solution moves from the initial position to a target position.
+         * @return false to stop the enumeration, true to carry on.
+         */
+        boolean visit(List<Move> solution);
+    }
+
+
+    private final Position initialPosition;
+    private boolean useSymmetry = false;
+    private int targetX = -1;
+    private int targetY = -1;
+    private boolean usePagodas = true;
+    private final List<Pagoda> pagodas = new ArrayList<Pagoda>();
+
+    private TargetFilter target;
+    private StateKeys keys;
+    private StateSet dead;
+    private long[] key;
+    private Position solution;
+    private long nodes;
+    private boolean stopped;
+
+
+    /**
+     * @param initialPosition position from which to conduct the search.
+     */
+    public ExhaustiveSearch(Position initialPosition) {
+        this.initialPosition = initialPosition;
+    }
+
+
+    /**
+     * Reduces the dead position table by the symmetries of the board, which makes
+     * it up to eight times smaller. When a target hole is set, symmetry reduction is
+     * only applied if every symmetry of the board leaves that hole in place.
+     */
+    public void setUseSymmetry(boolean val) {
+        useSymmetry = val;
+    }
+
+
+    /**
+     * Restricts solutions to those that leave the last peg in hole (x, y).
+     * By default any single remaining peg is a solution. Positions from which
+     * the target hole is provably out of reach are then never expanded; see
+     * {@link PruningSearch#setTarget(int, int)}.
+     */
+    public void setTarget(int x, int y) {
+        if (!initialPosition.board().allowed(x, y)) {
+            throw new RuntimeException("target is not a hole of the board");
+        }
+        targetX = x;
+        targetY = y;
+    }
+
+
+    /**
+     * Turns the pagoda functions generated for the target hole on or off.
+     * They are on by default.
+     */
+    public void setUsePagodas(boolean val) {
+        usePagodas = val;
+    }
+
+
+    /**
+     * Adds a pagoda function to prune with.
+     */
+    public void addPagoda(Pagoda pagoda) {
+        if (pagoda.board() != initialPosition.board()) {
+            throw new IllegalArgumentException("pagoda function belongs to a different board");
+        }
+        pagodas.add(pagoda);
+    }
+
+
+    /**
+     * Searches until the first solution is found or every line of play has been
+     * shown to fail.
+     *
+     * @return true if the initial position can be solved.
+     */
+    public boolean isSolvable() {
+        prepare();
+        return target.reachable(initialPosition) && solve(initialPosition);
+    }
+
+
+    /**
+     * @return the solution found by the last call to {@link #isSolvable()},
+     * or null if there is none.
+     */
+    public List<Move> getSolution() {
+        return solution == null ? null : solution.getHistory();
+    }
+
+
+    /**
+     * Visits every distinct solution of the initial position, that is every move
+     * sequence that ends in a target position. The number of solutions can be
+     * astronomically large, so the visitor may stop the enumeration.
+     *
+     * @return number of solutions visited.
+     */
+    public long enumerate(SolutionVisitor visitor) {
+        prepare();
+        long[] count = new long[1];
+        if (target.reachable(initialPosition)) {
+            enumerate(initialPosition, visitor, count);
+        }
+        return count[0];
+    }
+
+
+    /**
+     * @return number of positions visited by the last search.
+     */
+    public long nodes() {
+        return nodes;
+    }
+
+
+    /**
+     * @return number of positions in the dead position table after the last search.
+     */
+    public int deadPositions() {
+        return dead == null ? 0 : dead.size();
+    }
+
+
+    private void prepare() {
+        Board board = initialPosition.board();
+        target = new TargetFilter(board, targetX, targetY, pagodas, usePagodas);
+        keys = new StateKeys(board, useSymmetry && target.symmetric(board), 0);
+        dead = new StateSet(keys.width(), 1 << 16, StateSet.DEFAULT_LOAD_FACTOR);
+        key = new long[keys.width()];
+        solution = null;
+        nodes = 0;
+        stopped = false;
+    }
+
+
+    private boolean solve(Position p) {
+        nodes++;
+        if (p.isFinal()) {
+            if (target.isTarget(p)) {
+                solution = p;
+                return true;
+            }
+            return false;
+        }
+
+        keys.key(p, key);
+        if (dead.contains(key)) {
+            return false;
+        }
+
+        for (Position child : p.children()) {
+            if (target.feasible(child) && solve(child)) {
+                return true;
+            }
+        }
+
+        keys.key(p, key);
+        dead.add(key);
+        return false;
+    }
+
+
+    // returns true if p has at least one solution
+    private boolean enumerate(Position p, SolutionVisitor visitor, long[] count) {
+        nodes++;
+        if (p.isFinal()) {
+            if (target.isTarget(p)) {
+                count[0]++;
+                stopped = !visitor.visit(p.getHistory());
+                return true;
+            }
+            return false;
+        }
+
+        keys.key(p, key);
+        if (dead.contains(key)) {
+            return false;
+        }
+
+        boolean solvable = false;
+        for (Position child : p.children()) {
+            if (!target.feasible(child)) {
+                continue;
+            }
+            solvable |= enumerate(child, visitor, count);
+            if (stopped) {
+                return solvable;
+            }
+        }
+
+        if (!solvable) {
+            keys.key(p, key);
+            dead.add(key);
+        }
+        return solvable;
+    }
+}
@@ -0,0 +1,22 @@
+package solver;
+
+/**
+ * ExpansionStats counts what becomes of the children of one generation while
+ * it is expanded. Every expansion path fills one in; the parallel expander
+ * fills one per chunk and adds them up.
+ */
+final class ExpansionStats {
+    // children generated from the jump table
+    long generated;
+    // children dropped by the target filter
+    long infeasible;
+    // distinct children left after dropping duplicates
+    long unique;
+
+
+    void add(ExpansionStats other) {
+        generated += other.generated;
+        infeasible += other.infeasible;
+        unique += other.unique;
+    }
+}
@@ -0,0 +1,76 @@
+package solver;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * GenerationEvent is the Flight Recorder event of one generation of a
+ * PruningSearch. It is only emitted when enabled with
+ * <code>PruningSearch.setFlightRecorderEvents(true)</code>, which needs a JVM
+ * with the jdk.jfr module.
+ */
+@Name("solver.Generation")
+@Label("Search Generation")
+@Category("Peg Solitaire")
+@Description("Expansion of one generation of a pruning search")
+final class GenerationEvent extends Event {
+    @Label("Generation")
+    int generation;
+
+    @Label("Pegs")
+    int pegs;
+
+    @Label("Parents")
+    long parents;
+
+    @Label("Children")
+    long children;
+
+    @Label("Infeasible")
+    long infeasible;
+
+    @Label("Duplicates")
+    long duplicates;
+
+    @Label("Pruned")
+    long pruned;
+
+    @Label("Frontier")
+    long frontier;
+
+    @Label("Solutions")
+    int solutions;
+
+    @Label("Expansion Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+
+
+    static void emit(GenerationStats g) {
+        GenerationEvent e = new GenerationEvent();
+        if (!e.isEnabled()) {
+            return;
+        }
+        e.generation = g.generation();
+        e.pegs = g.pegs();
+        e.parents = g.parents();
+        e.children = g.children();
+        e.infeasible = g.infeasible();
+        e.duplicates = g.duplicates();
+        e.pruned = g.pruned();
+        e.frontier = g.frontier();
+        e.solutions = g.solutions();
+        e.nanos = g.nanos();
+        e.allocated = g.allocatedBytes();
+        e.commit();
+    }
+}
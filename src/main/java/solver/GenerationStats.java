@@ -0,0 +1,141 @@
+package solver;
+
+/**
+ * GenerationStats describes the expansion of one generation of a search:
+ * how many children it had, what the dedup, the target filter and the
+ * pruning took away, and what it cost.
+ */
+public final class GenerationStats {
+    private final int generation;
+    private final int pegs;
+    private final long parents;
+    private final long children;
+    private final long infeasible;
+    private final long unique;
+    private final long frontier;
+    private final int solutions;
+    private final long nanos;
+    private final long allocatedBytes;
+
+
+    GenerationStats(int generation, int pegs, long parents, ExpansionStats expansion, long frontier,
+                    int solutions, long nanos, long allocatedBytes) {
+        this.generation = generation;
+        this.pegs = pegs;
+        this.parents = parents;
+        this.children = expansion.generated;
+        this.infeasible = expansion.infeasible;
+        this.unique = expansion.unique;
+        this.frontier = frontier;
+        this.solutions = solutions;
+        this.nanos = nanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+
+    /**
+     * @return number of the generation; the children of the initial position are generation 1.
+     */
+    public int generation() {
+        return generation;
+    }
+
+
+    /**
+     * @return number of pegs of the positions in the generation.
+     */
+    public int pegs() {
+        return pegs;
+    }
+
+
+    /**
+     * @return number of positions expanded to build the generation.
+     */
+    public long parents() {
+        return parents;
+    }
+
+
+    /**
+     * @return number of children generated, duplicates included.
+     */
+    public long children() {
+        return children;
+    }
+
+
+    /**
+     * @return number of children dropped because they cannot reach the target.
+     */
+    public long infeasible() {
+        return infeasible;
+    }
+
+
+    /**
+     * @return number of children dropped as duplicates of earlier ones.
+     */
+    public long duplicates() {
+        return children - infeasible - unique;
+    }
+
+
+    /**
+     * @return fraction of the feasible children that were duplicates.
+     */
+    public double dedupHitRate() {
+        long feasible = children - infeasible;
+        return feasible == 0 ? 0 : (double) duplicates() / feasible;
+    }
+
+
+    /**
+     * @return number of distinct children discarded by the pruning number or the memory budget.
+     */
+    public long pruned() {
+        return Math.max(0, unique - frontier);
+    }
+
+
+    /**
+     * @return number of positions kept for the next generation.
+     */
+    public long frontier() {
+        return frontier;
+    }
+
+
+    /**
+     * @return number of solutions found in the generation.
+     */
+    public int solutions() {
+        return solutions;
+    }
+
+
+    /**
+     * @return time taken to expand the generation, in nanoseconds.
+     */
+    public long nanos() {
+        return nanos;
+    }
+
+
+    /**
+     * @return bytes allocated by the searching thread while expanding the generation,
+     * or -1 if the JVM cannot tell. Worker threads of a parallel search are not counted.
+     */
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("generation %d (%d pegs): %d parents, %d children, %d infeasible, "
+                        + "%d duplicates, %d pruned, %d kept, %d solutions, %.3f ms",
+                generation, pegs, parents, children, infeasible, duplicates(), pruned(), frontier,
+                solutions, nanos / 1e6);
+    }
+}
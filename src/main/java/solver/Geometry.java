@@ -0,0 +1,297 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Geometry decides which holes of a board lie in a line, that is which jumps
+ * can be played on it. A board is a set of holes on a grid plus a geometry;
+ * Board turns the two into its jump table once, and every search, move
+ * generator and position class works from that table alone.
+ * <p>
+ * A geometry is either a set of jump directions, each of which gives a jump
+ * wherever three holes follow each other in that direction, or an explicit
+ * set of lines. It also names the reflections and rotations that may map a
+ * board onto itself. Board keeps those that carry its holes onto holes and its
+ * jumps onto jumps.
+ */
+public final class Geometry {
+    // (x, y) -> (a x + b y, c x + d y), stored as {a, b, c, d}
+    private static final int[] SWAP = {0, 1, 1, 0};
+    private static final int[] ROTATE60 = {1, -1, 1, 0};
+
+    private static final String[] SQUARE_NAMES = {
+            "verticalFlip", "horizontalFlip", "rotate180",
+            "leftDiagonalFlip", // top left to bottom right
+            "rightDiagonalFlip", // top right to bottom left
+            "rotate90", "rotate270"
+    };
+    private static final int[][] SQUARE_TRANSFORMS = {
+            {-1, 0, 0, 1}, {1, 0, 0, -1}, {-1, 0, 0, -1},
+            {0, -1, -1, 0},
+            {0, 1, 1, 0},
+            {0, -1, 1, 0}, {0, 1, -1, 0}
+    };
+
+    private static final Geometry ORTHOGONAL = new Geometry("orthogonal",
+            new int[][]{{0, 1}, {0, -1}, {1, 0}, {-1, 0}}, null,
+            SQUARE_NAMES, SQUARE_TRANSFORMS);
+
+    private static final Geometry DIAGONAL = new Geometry("diagonal",
+            new int[][]{{0, 1}, {0, -1}, {1, 0}, {-1, 0}, {1, 1}, {-1, -1}, {-1, 1}, {1, -1}}, null,
+            SQUARE_NAMES, SQUARE_TRANSFORMS);
+
+    private static final Geometry TRIANGULAR;
+
+    static {
+        // the twelve symmetries of the triangular lattice: five rotations by
+        // multiples of 60 degrees and six reflections, each the swap of rows and
+        // columns followed by one of the rotations
+        String[] names = new String[11];
+        int[][] transforms = new int[11][];
+        int[] rotation = {1, 0, 0, 1};
+        for (int k = 0; k < 6; k++) {
+            if (k > 0) {
+                names[k - 1] = "rotate" + 60 * k;
+                transforms[k - 1] = rotation;
+            }
+            names[5 + k] = "reflect" + 60 * k;
+            transforms[5 + k] = compose(rotation, SWAP);
+            rotation = compose(ROTATE60, rotation);
+        }
+        TRIANGULAR = new Geometry("triangular",
+                new int[][]{{0, 1}, {0, -1}, {1, 0}, {-1, 0}, {1, 1}, {-1, -1}}, null,
+                names, transforms);
+    }
+
+    private final String name;
+    // jump directions (dx, dy), in the order in which jumps from a hole are
+    // generated; null when the geometry is a set of lines
+    private final int[][] directions;
+    // lines of holes, each as the coordinates x0, y0, x1, y1, ...
+    private final int[][] lines;
+    private final String[] transformNames;
+    private final int[][] transforms;
+
+
+    private Geometry(String name, int[][] directions, int[][] lines, String[] transformNames, int[][] transforms) {
+        this.name = name;
+        this.directions = directions;
+        this.lines = lines;
+        this.transformNames = transformNames;
+        this.transforms = transforms;
+    }
+
+
+    /**
+     * @return the usual geometry: jumps along the rows and the columns of the grid.
+     */
+    public static Geometry orthogonal() {
+        return ORTHOGONAL;
+    }
+
+
+    /**
+     * @return jumps along the rows, the columns and both diagonals of the grid,
+     * as played on French boards.
+     */
+    public static Geometry diagonal() {
+        return DIAGONAL;
+    }
+
+
+    /**
+     * @return the six directions of a triangular lattice, for triangular and
+     * hexagonal boards. The lattice is drawn on the grid with every row shifted
+     * half a hole to the right of the one below it, so the neighbours of hole
+     * (x, y) are the holes to its left and right, (x, y - 1) and (x - 1, y - 1)
+     * above it and (x, y + 1) and (x + 1, y + 1) below it. A triangle then
+     * takes the lower left half of the grid; see {@link Boards#triangular(int)}.
+     */
+    public static Geometry triangular() {
+        return TRIANGULAR;
+    }
+
+
+    /**
+     * Builds a geometry from explicit lines. Each line is given as the
+     * coordinates x0, y0, x1, y1, ... of its holes in order, and every three
+     * consecutive holes of a line give a jump each way. Lines need not be
+     * straight, but there may only be one jump from a hole to another. The
+     * reflections and rotations of the grid are tried as symmetries.
+     *
+     * @throws IllegalArgumentException if a line holds fewer than three holes.
+     */
+    public static Geometry lines(int[]... lines) {
+        int[][] copy = new int[lines.length][];
+        for (int k = 0; k < lines.length; k++) {
+            if (lines[k].length < 6 || lines[k].length % 2 != 0) {
+                throw new IllegalArgumentException("line " + k + " must hold the coordinates of at least three holes");
+            }
+            copy[k] = lines[k].clone();
+        }
+        return new Geometry("lines", null, copy, SQUARE_NAMES, SQUARE_TRANSFORMS);
+    }
+
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+
+    /**
+     * @return every jump of a board of the given size and holes as a (from,
+     * over, to) triple of cell indices, ordered by the cell jumped from.
+     */
+    int[][] jumps(int width, int height, boolean[] holes) {
+        List<int[]> jumps = new ArrayList<int[]>();
+
+        if (directions != null) {
+            for (int i = 0; i < holes.length; i++) {
+                if (!holes[i]) {
+                    continue;
+                }
+
+                int cx = i % width;
+                int cy = i / width;
+                for (int[] d : directions) {
+                    int x3 = cx + 2 * d[0];
+                    int y3 = cy + 2 * d[1];
+                    if (x3 < 0 || y3 < 0 || x3 >= width || y3 >= height) {
+                        continue;
+                    }
+                    int over = (cy + d[1]) * width + cx + d[0];
+                    int to = y3 * width + x3;
+                    if (holes[over] && holes[to]) {
+                        jumps.add(new int[]{i, over, to});
+                    }
+                }
+            }
+            return jumps.toArray(new int[jumps.size()][]);
+        }
+
+        for (int[] line : lines) {
+            int[] cells = new int[line.length / 2];
+            for (int k = 0; k < cells.length; k++) {
+                int x = line[2 * k];
+                int y = line[2 * k + 1];
+                if (x < 0 || y < 0 || x >= width || y >= height) {
+                    throw new IllegalArgumentException("line point (" + x + ", " + y + ") is outside the board");
+                }
+                cells[k] = y * width + x;
+            }
+
+            for (int k = 0; k + 2 < cells.length; k++) {
+                if (holes[cells[k]] && holes[cells[k + 1]] && holes[cells[k + 2]]) {
+                    add(jumps, cells[k], cells[k + 1], cells[k + 2], width);
+                    add(jumps, cells[k + 2], cells[k + 1], cells[k], width);
+                }
+            }
+        }
+
+        // stable, so jumps from the same hole keep the order of the lines
+        Collections.sort(jumps, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] a, int[] b) {
+                return Integer.compare(a[0], b[0]);
+            }
+        });
+        return jumps.toArray(new int[jumps.size()][]);
+    }
+
+
+    /**
+     * @return every unordered pair of neighbouring holes, next to each other in
+     * one of the directions of the geometry or on one of its lines.
+     */
+    int[][] neighbours(int width, int height, boolean[] holes) {
+        List<int[]> pairs = new ArrayList<int[]>();
+
+        if (directions != null) {
+            for (int i = 0; i < holes.length; i++) {
+                if (!holes[i]) {
+                    continue;
+                }
+
+                int cx = i % width;
+                int cy = i / width;
+                for (int[] d : directions) {
+                    int x2 = cx + d[0];
+                    int y2 = cy + d[1];
+                    // each pair once, from the hole with the smaller index
+                    if (x2 < 0 || y2 < 0 || x2 >= width || y2 >= height || y2 * width + x2 < i) {
+                        continue;
+                    }
+                    if (holes[y2 * width + x2]) {
+                        pairs.add(new int[]{i, y2 * width + x2});
+                    }
+                }
+            }
+            return pairs.toArray(new int[pairs.size()][]);
+        }
+
+        Set<Long> seen = new HashSet<Long>();
+        for (int[] line : lines) {
+            for (int k = 0; k + 3 < line.length; k += 2) {
+                int a = line[k + 1] * width + line[k];
+                int b = line[k + 3] * width + line[k + 2];
+                if (holes[a] && holes[b] && seen.add(((long) Math.min(a, b) << 32) | Math.max(a, b))) {
+                    pairs.add(new int[]{Math.min(a, b), Math.max(a, b)});
+                }
+            }
+        }
+        return pairs.toArray(new int[pairs.size()][]);
+    }
+
+
+    // adds a jump unless an equal one is there already
+    private static void add(List<int[]> jumps, int from, int over, int to, int width) {
+        for (int[] jump : jumps) {
+            if (jump[0] == from && jump[2] == to) {
+                if (jump[1] != over) {
+                    throw new IllegalArgumentException("two jumps from (" + from % width + ", " + from / width
+                            + ") to (" + to % width + ", " + to / width + ")");
+                }
+                return;
+            }
+        }
+        jumps.add(new int[]{from, over, to});
+    }
+
+
+    /**
+     * @return number of candidate symmetries, the identity left out.
+     */
+    int transformCount() {
+        return transforms.length;
+    }
+
+
+    String transformName(int t) {
+        return transformNames[t];
+    }
+
+
+    /**
+     * @return candidate symmetry t as the matrix {a, b, c, d} of the linear map
+     * (x, y) -> (a x + b y, c x + d y). Board translates the image of its holes
+     * back onto them.
+     */
+    int[] transform(int t) {
+        return transforms[t];
+    }
+
+
+    // the matrix of m applied after n
+    private static int[] compose(int[] m, int[] n) {
+        return new int[]{
+                m[0] * n[0] + m[1] * n[2], m[0] * n[1] + m[1] * n[3],
+                m[2] * n[0] + m[3] * n[2], m[2] * n[1] + m[3] * n[3]
+        };
+    }
+}
@@ -0,0 +1,96 @@
+package solver;
+
+/**
+ * Neighbours tells which holes of a board are next to each other on boards
+ * whose geometry is not the usual one of rows and columns, for the scorers that
+ * look at the pegs around every peg. Two holes are neighbours when they are
+ * next to each other along the lines of the geometry: the diagonals as well
+ * as the rows and columns of a French board, the six directions of a
+ * triangular one, or the lines of a custom geometry.
+ * <p>
+ * The orthogonal geometry does without, since its neighbours are found a whole
+ * word of cells at a time by shifting the bitboard.
+ */
+final class Neighbours {
+    private final int words;
+    // unordered pairs of neighbouring cells, pair k being (first[k], second[k])
+    private final int[] first;
+    private final int[] second;
+    // largest number of neighbours of any hole, the sides of a hole
+    private final int sides;
+
+
+    /**
+     * @param pairs the pairs of neighbouring holes of the board, as given by its geometry.
+     */
+    Neighbours(Board board, int[][] pairs) {
+        this.words = board.words;
+
+        int[] degree = new int[board.X * board.Y];
+        first = new int[pairs.length];
+        second = new int[pairs.length];
+        for (int k = 0; k < pairs.length; k++) {
+            first[k] = pairs[k][0];
+            second[k] = pairs[k][1];
+            degree[first[k]]++;
+            degree[second[k]]++;
+        }
+
+        int max = 0;
+        for (int d : degree) {
+            max = Math.max(max, d);
+        }
+        sides = max;
+    }
+
+
+    /**
+     * @return border length of the bitboard held in <code>states</code> from
+     * index <code>offset</code> on: every peg has as many sides as the hole with
+     * the most neighbours, and every pair of neighbouring pegs hides one side of
+     * each.
+     */
+    int borderLength(long[] states, int offset) {
+        int pegs = 0;
+        for (int w = 0; w < words; w++) {
+            pegs += Long.bitCount(states[offset + w]);
+        }
+
+        int pairs = 0;
+        for (int k = 0; k < first.length; k++) {
+            if (occupied(states, offset, first[k]) && occupied(states, offset, second[k])) {
+                pairs++;
+            }
+        }
+        return sides * pegs - 2 * pairs;
+    }
+
+
+    /**
+     * @param scratch work buffer of <code>words</code> longs.
+     * @return number of pegs with no peg among their neighbours.
+     */
+    int isolatedPegs(long[] states, int offset, long[] scratch) {
+        // pegs with a neighbouring peg
+        for (int w = 0; w < words; w++) {
+            scratch[w] = 0;
+        }
+        for (int k = 0; k < first.length; k++) {
+            if (occupied(states, offset, first[k]) && occupied(states, offset, second[k])) {
+                scratch[first[k] >>> 6] |= 1L << first[k];
+                scratch[second[k] >>> 6] |= 1L << second[k];
+            }
+        }
+
+        int isolated = 0;
+        for (int w = 0; w < words; w++) {
+            isolated += Long.bitCount(states[offset + w] & ~scratch[w]);
+        }
+        return isolated;
+    }
+
+
+    private static boolean occupied(long[] states, int offset, int i) {
+        return (states[offset + (i >>> 6)] & (1L << i)) != 0;
+    }
+}
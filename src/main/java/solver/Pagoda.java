@@ -0,0 +1,154 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A Pagoda function gives every hole of a board a weight such that no jump can
+ * increase the weighted sum of the pegs: for every jump, the weights of the
+ * hole jumped from and the hole jumped over add up to at least the weight of
+ * the hole landed in. The sum of a position is then an upper bound on the sum
+ * of every position reachable from it, so a position whose sum is below that
+ * of the target can never reach the target and may be dropped from a search
+ * without losing a single solution.
+ */
+public final class Pagoda {
+    private final Board board;
+    private final long[] weights;
+
+
+    /**
+     * @param weights one weight per cell of the grid, cell (x, y) at index y * X + x.
+     *                Weights of cells that are not holes are ignored.
+     * @throws IllegalArgumentException if the weights can increase under some jump.
+     */
+    public Pagoda(Board board, long[] weights) {
+        if (weights.length != board.X * board.Y) {
+            throw new IllegalArgumentException("there must be one weight per cell of the board");
+        }
+
+        int j = increasingJump(board, weights);
+        if (j >= 0) {
+            throw new IllegalArgumentException("weights are not a pagoda function: jump " + board.jump(j) + " increases them");
+        }
+
+        this.board = board;
+        this.weights = weights.clone();
+    }
+
+
+    // a jump that increases the weighted sum, or -1 if there is none
+    private static int increasingJump(Board board, long[] weights) {
+        for (int j = 0; j < board.jumpCount; j++) {
+            if (weights[board.jumpFrom[j]] + weights[board.jumpOver[j]] < weights[board.jumpTo[j]]) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+
+    public long weight(int x, int y) {
+        return weights[y * board.X + x];
+    }
+
+
+    Board board() {
+        return board;
+    }
+
+
+    /**
+     * @return weighted sum of the pegs of position p.
+     */
+    public long value(Position p) {
+        if (p.board() != board) {
+            throw new IllegalArgumentException("position belongs to a different board");
+        }
+        return p.weightedSum(weights);
+    }
+
+
+    /**
+     * Generates pagoda functions that favour hole (x, y), for pruning searches
+     * that must end with a peg there. The weight of a hole falls off with its
+     * distance d from the target like the Fibonacci numbers F(n - d), the
+     * steepest decay that no jump can climb: along a row, F(n - d - 2) +
+     * F(n - d - 1) = F(n - d). There is one function for the horizontal
+     * distance, one for the vertical distance and one for both, their product.
+     * Functions whose weights would overflow a long are left out, and so is the
+     * product on boards whose jumps also run diagonally, which it does not bound.
+     */
+    public static List<Pagoda> forTarget(Board board, int x, int y) {
+        if (!board.allowed(x, y)) {
+            throw new RuntimeException("target is not a hole of the board");
+        }
+
+        long[] fx = fibonacciFalloff(board.X, x);
+        long[] fy = fibonacciFalloff(board.Y, y);
+
+        List<Pagoda> pagodas = new ArrayList<Pagoda>();
+        addIfFits(pagodas, board, fx, ones(board.Y));
+        addIfFits(pagodas, board, ones(board.X), fy);
+        addIfFits(pagodas, board, fx, fy);
+        return pagodas;
+    }
+
+
+    // weights[y * X + x] = fx[x] * fy[y]. The pagoda is only added if the
+    // weighted sum of a full board fits in a long and no jump increases it.
+    private static void addIfFits(List<Pagoda> pagodas, Board board, long[] fx, long[] fy) {
+        if (fx == null || fy == null) {
+            return;
+        }
+
+        long[] weights = new long[board.X * board.Y];
+        long total = 0;
+        try {
+            for (int y = 0; y < board.Y; y++) {
+                for (int x = 0; x < board.X; x++) {
+                    long w = Math.multiplyExact(fx[x], fy[y]);
+                    weights[y * board.X + x] = w;
+                    if (board.allowed(x, y)) {
+                        total = Math.addExact(total, w);
+                    }
+                }
+            }
+        } catch (ArithmeticException e) {
+            return;
+        }
+        if (increasingJump(board, weights) < 0) {
+            pagodas.add(new Pagoda(board, weights));
+        }
+    }
+
+
+    // f[i] = F(n - |i - t|) with n one more than the largest distance,
+    // or null if that does not fit in a long
+    private static long[] fibonacciFalloff(int length, int t) {
+        int n = Math.max(t, length - 1 - t) + 1;
+        if (n > 92) {
+            return null;
+        }
+
+        long[] fib = new long[n + 1];
+        fib[1] = 1;
+        for (int k = 2; k <= n; k++) {
+            fib[k] = fib[k - 1] + fib[k - 2];
+        }
+
+        long[] f = new long[length];
+        for (int i = 0; i < length; i++) {
+            f[i] = fib[n - Math.abs(i - t)];
+        }
+        return f;
+    }
+
+
+    private static long[] ones(int length) {
+        long[] f = new long[length];
+        Arrays.fill(f, 1);
+        return f;
+    }
+}
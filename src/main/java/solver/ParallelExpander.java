@@ -0,0 +1,291 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * ParallelExpander expands one generation of the pruning search on a ForkJoinPool.
+ * <p>
+ * The work is done in three steps:
+ * <ol>
+ * <li>the parents are split into contiguous chunks and every chunk is expanded
+ * on its own task, which also computes the dedup key of every child;</li>
+ * <li>the children are sharded by the hash of their key and every shard is
+ * deduplicated on its own task. A shard visits its children in generation
+ * order, so within every shard the first occurrence of a position is kept;</li>
+ * <li>the surviving children are concatenated in chunk order.</li>
+ * </ol>
+ * The result is the same list, in the same order, that the sequential loop
+ * in PruningSearch produces, whatever the number of threads. When pruning is
+ * on, {@link #expandBeam(List, int, List, ExpansionStats)} selects the next generation without
+ * ever building the whole one.
+ */
+final class ParallelExpander {
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final StateKeys keys;
+    private final TargetFilter target;
+    private final PositionScorer scorer;
+    private final int keyWidth;
+    private final float loadFactor;
+    private final int shardBits;
+    private final Cancellation cancellation;
+
+
+    ParallelExpander(int parallelism, StateKeys keys, TargetFilter target, PositionScorer scorer,
+                     float loadFactor, Cancellation cancellation) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.parallelism = parallelism;
+        this.keys = keys.forThread();
+        this.target = target;
+        this.scorer = scorer;
+        this.keyWidth = keys.width();
+        this.loadFactor = loadFactor;
+        this.shardBits = 32 - Integer.numberOfLeadingZeros(parallelism * CHUNKS_PER_THREAD - 1);
+        this.cancellation = cancellation;
+    }
+
+
+    void shutdown() {
+        pool.shutdown();
+    }
+
+
+    /**
+     * @param stats counts of the expansion, added to.
+     */
+    List<Position> expand(List<Position> parents, ExpansionStats stats) {
+        final Chunk[] chunks = split(parents);
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final Chunk chunk : chunks) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    chunk.expand();
+                    return null;
+                }
+            });
+        }
+        runAll(tasks);
+
+        int total = 0;
+        for (Chunk chunk : chunks) {
+            total += chunk.children.size();
+        }
+
+        final int shardCount = 1 << shardBits;
+        final int expectedPerShard = total / shardCount + 1;
+        tasks.clear();
+        for (int s = 0; s < shardCount; s++) {
+            final int shard = s;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    dedupShard(chunks, shard, expectedPerShard);
+                    return null;
+                }
+            });
+        }
+        runAll(tasks);
+
+        List<Position> children = new ArrayList<Position>(total);
+        for (Chunk chunk : chunks) {
+            stats.add(chunk.stats);
+            for (int i = 0; i < chunk.children.size(); i++) {
+                if (chunk.keep[i]) {
+                    children.add(chunk.children.get(i));
+                }
+            }
+        }
+        stats.unique += children.size();
+        return children;
+    }
+
+
+    /**
+     * Beam variant of {@link #expand(List, ExpansionStats)}. Every chunk deduplicates its own
+     * children and keeps them in a private beam of <code>capacity</code>
+     * positions, so no chunk ever holds more than that. The chunk beams are
+     * then merged in generation order through a final beam. A position that
+     * ranks in the top <code>capacity</code> of the whole generation also ranks
+     * there within its chunk, so the merge selects the same positions, in the
+     * same order, as the sequential beam.
+     *
+     * <p>
+     * The unique count of <code>stats</code> is the sum of the chunk counts less
+     * the duplicates found while merging the chunk beams; duplicates between
+     * children that no chunk beam kept are counted as unique.
+     *
+     * @param finals list to which the target positions of the generation are added.
+     * @param stats  counts of the expansion, added to.
+     */
+    List<Position> expandBeam(List<Position> parents, final int capacity, List<Position> finals,
+                              ExpansionStats stats) {
+        Chunk[] chunks = split(parents);
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final Chunk chunk : chunks) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    chunk.expandBeam(capacity);
+                    return null;
+                }
+            });
+        }
+        runAll(tasks);
+
+        StateSet dedup = new StateSet(keyWidth);
+        StateSet finalDedup = new StateSet(keyWidth);
+        long[] key = new long[keyWidth];
+        Beam merged = new Beam(capacity, scorer);
+        long seq = 0;
+
+        for (Chunk chunk : chunks) {
+            stats.add(chunk.stats);
+            for (Position p : chunk.finals) {
+                keys.key(p, key);
+                if (finalDedup.add(key)) {
+                    finals.add(p);
+                }
+            }
+
+            if (chunk.beam.overflowed()) {
+                merged.markOverflowed();
+            }
+
+            for (Position p : chunk.beam.inOfferOrder()) {
+                keys.key(p, key);
+                if (dedup.add(key)) {
+                    merged.offer(p, seq++);
+                } else {
+                    stats.unique--;
+                }
+            }
+        }
+
+        return merged.survivors();
+    }
+
+
+    private Chunk[] split(List<Position> parents) {
+        int chunkCount = Math.min(parents.size(), parallelism * CHUNKS_PER_THREAD);
+        Chunk[] chunks = new Chunk[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+            int from = (int) ((long) parents.size() * c / chunkCount);
+            int to = (int) ((long) parents.size() * (c + 1) / chunkCount);
+            chunks[c] = new Chunk(parents.subList(from, to));
+        }
+        return chunks;
+    }
+
+
+    private void dedupShard(Chunk[] chunks, int shard, int expected) {
+        StateSet dedup = new StateSet(keyWidth, expected, loadFactor);
+        long[] key = new long[keyWidth];
+
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.shards.length; i++) {
+                if (chunk.shards[i] == shard) {
+                    System.arraycopy(chunk.childKeys, i * keyWidth, key, 0, keyWidth);
+                    chunk.keep[i] = dedup.add(key);
+                }
+            }
+        }
+    }
+
+
+    private void runAll(List<Callable<Void>> tasks) {
+        for (Future<Void> f : pool.invokeAll(tasks)) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("search interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("generation expansion failed", e.getCause());
+            }
+        }
+    }
+
+
+    private final class Chunk {
+        final List<Position> parents;
+        List<Position> children;
+        long[] childKeys;
+        int[] shards;
+        boolean[] keep;
+        Beam beam;
+        List<Position> finals;
+        final ExpansionStats stats = new ExpansionStats();
+
+
+        Chunk(List<Position> parents) {
+            this.parents = parents;
+        }
+
+
+        void expand() {
+            children = new ArrayList<Position>();
+            for (Position p : parents) {
+                if (cancellation.stopped()) {
+                    break;
+                }
+                for (Position child : p.children()) {
+                    stats.generated++;
+                    if (target.feasible(child)) {
+                        children.add(child);
+                    } else {
+                        stats.infeasible++;
+                    }
+                }
+            }
+
+            int n = children.size();
+            childKeys = new long[n * keyWidth];
+            shards = new int[n];
+            keep = new boolean[n];
+
+            StateKeys chunkKeys = keys.forThread();
+            long[] key = new long[keyWidth];
+            for (int i = 0; i < n; i++) {
+                chunkKeys.key(children.get(i), key);
+                System.arraycopy(key, 0, childKeys, i * keyWidth, keyWidth);
+                shards[i] = shardBits == 0 ? 0 : (int) (StateSet.hash(key, 0, keyWidth) >>> (64 - shardBits));
+            }
+        }
+
+
+        void expandBeam(int capacity) {
+            Dedup dedup = new Dedup(keys.forThread(), null, parents.size() * 4, loadFactor);
+            beam = new Beam(capacity, scorer);
+            finals = new ArrayList<Position>();
+            long seq = 0;
+
+            for (Position p : parents) {
+                if (cancellation.stopped()) {
+                    break;
+                }
+                for (Position child : p.children()) {
+                    stats.generated++;
+                    if (!target.feasible(child)) {
+                        stats.infeasible++;
+                    } else if (dedup.add(child)) {
+                        if (target.isTarget(child)) {
+                            finals.add(child);
+                        }
+                        beam.offer(child, seq++);
+                    }
+                }
+            }
+            stats.unique = dedup.size();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Path is the move history of a Position held as a chain of jump indices.
+ * Every child shares its parent's chain and adds a single link, so a
+ * Position pays O(1) memory for the moves that led to it, however deep.
+ * The chain is only turned into a list of Moves when a solution is asked for.
+ * <p>
+ * The empty path is represented by <code>null</code>.
+ */
+final class Path {
+    final Path previous;
+    final int jump;
+    final int length;
+
+
+    private Path(Path previous, int jump) {
+        this.previous = previous;
+        this.jump = jump;
+        this.length = previous == null ? 1 : previous.length + 1;
+    }
+
+
+    static Path extend(Path path, int jump) {
+        return new Path(path, jump);
+    }
+
+
+    static int length(Path path) {
+        return path == null ? 0 : path.length;
+    }
+
+
+    static List<Move> toMoves(Board board, Path path) {
+        List<Move> moves = new ArrayList<Move>(length(path));
+        for (Path p = path; p != null; p = p.previous) {
+            moves.add(board.jump(p.jump));
+        }
+        Collections.reverse(moves);
+        return moves;
+    }
+}
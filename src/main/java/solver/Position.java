@@ -1,48 +1,71 @@
 package solver;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Position class represents the state of the Peg Solitaire board
  * at any particular step during the game.
  * <p>
+ * The occupancy is held as a bitboard: one bit per cell of the board's
+ * rectangular grid, in row-major order, packed into as many longs as the
+ * board needs (a single long for boards of up to 64 cells). Cells that are
+ * not holes are always 0.
+ * <p>
  * There is no public constructor. The initial Position is constructed
  * by the Board class.
+ * <p>
+ * Positions are mutable: {@link #set(int, int, boolean)} and
+ * {@link #play(Move)} change the pegs in place, and {@link #equals(Object)}
+ * and {@link #hashCode()} depend on those pegs. A Position must therefore not
+ * be changed while it is held in a hash set or used as a map key; play on a
+ * {@link #copy()} instead.
  */
 public class Position {
     private final Board board;
-    private final boolean[] occupied;
-    private final List<Move> history;
+    private final long[] bits;
+    private final Path history;
 
-    private String id = null;
-    private String symmID = null;
-    private int compactnessScore = -1;
+    // Zobrist hash of the bitboard, kept up to date on every change
+    private long hash;
+    private long hashHigh;
 
 
     // constructor is not public. Should only be used by
     // Board to return initial state.
     // may also be used by in-package unit tests.
     Position(Board board) {
+        this(board, board.holeMask().clone(), null);
+    }
+
+
+    private Position(Board board, long[] bits, Path history) {
+        this(board, bits, history, board.zobristHash(bits), board.zobristHashHigh(bits));
+    }
+
+
+    private Position(Board board, long[] bits, Path history, long hash, long hashHigh) {
         this.board = board;
-        occupied = new boolean[board.X * board.Y];
-        history = new ArrayList<Move>();
-
-        for (int i = 0; i < occupied.length; i++) {
-            if (board.allowed(i)) {
-                occupied[i] = true;
-            } else {
-                occupied[i] = false;
-            }
-        }
+        this.bits = bits;
+        this.history = history;
+        this.hash = hash;
+        this.hashHigh = hashHigh;
+    }
+
+
+    /**
+     * @return a position with the given bitboard and no history, as read back
+     * from a frontier file. The array is not copied.
+     */
+    static Position restore(Board board, long[] bits) {
+        return new Position(board, bits, null);
     }
 
 
     public boolean occupied(int x, int y) {
         if (board.allowed(x, y)) {
-            int i = y * board.X + x;
-            return occupied[i];
+            return get(y * board.X + x);
         } else {
             return false;
         }
@@ -50,161 +73,216 @@ public class Position {
 
 
     public Position copy() {
-        Position p = new Position(this.board);
-        for (int i = 0; i < occupied.length; i++) {
-            p.occupied[i] = this.occupied[i];
-        }
-        return p;
+        return new Position(board, bits.clone(), null, hash, hashHigh);
     }
 
 
     public void set(int x, int y, boolean state) {
-        occupied[y * board.X + x] = state;
+        set(y * board.X + x, state);
     }
 
 
     public boolean isComplement(Position other) {
-        for (int i = 0; i < occupied.length; i++) {
-            if (board.allowed(i)) {
-                if (occupied[i] == other.occupied[i]) {
-                    return false;
-                }
+        long[] holes = board.holeMask();
+        for (int w = 0; w < bits.length; w++) {
+            if (((bits[w] ^ other.bits[w]) & holes[w]) != holes[w]) {
+                return false;
             }
         }
         return true;
     }
 
 
-    void set(int i, boolean state) {
-        occupied[i] = state;
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+
+        if (!(o instanceof Position)) {
+            return false;
+        }
+
+        Position other = (Position) o;
+        return board == other.board && Arrays.equals(bits, other.bits);
     }
 
 
-    boolean isFinal() {
-        int counter = 0;
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32));
+    }
 
-        for (int i = 0; i < occupied.length; i++) {
-            if (occupied[i]) {
-                counter++;
-            }
-        }
 
-        return counter == 1;
+    /**
+     * @return 64-bit Zobrist hash of this position. Equal positions have equal
+     * hashes; different positions collide with probability 2<sup>-64</sup>.
+     */
+    long hash() {
+        return hash;
     }
 
 
-    String id() {
-        if (id == null) {
-            id = calculateID();
+    /**
+     * @return upper 64 bits of the 128-bit Zobrist hash of this position, or 0
+     * on boards of up to 64 cells.
+     */
+    long hashHigh() {
+        return hashHigh;
+    }
+
+
+    void set(int i, boolean state) {
+        if (!board.allowed(i)) {
+            return;
         }
 
-        return id;
+        if (get(i) != state) {
+            flip(i);
+        }
     }
 
 
-    private String calculateID() {
-        StringBuilder sb = new StringBuilder(board.X * board.Y);
-        for (int i = 0; i < occupied.length; i++) {
-            if (occupied[i]) {
-                sb.append('1');
-            } else {
-                sb.append('0');
+    private boolean get(int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+
+    int pegCount() {
+        int counter = 0;
+        for (long w : bits) {
+            counter += Long.bitCount(w);
+        }
+        return counter;
+    }
+
+
+    /**
+     * @return sum of <code>weights[i]</code> over the occupied holes i.
+     */
+    long weightedSum(long[] weights) {
+        long sum = 0;
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                sum += weights[(w << 6) + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
             }
         }
-        return sb.toString();
+        return sum;
     }
 
 
-    String symmID() {
-        if (symmID == null) {
-            symmID = calculateSymmID();
+    /**
+     * @return true if this position and <code>other</code> are in the same
+     * position class, a necessary condition for one to be played into the other.
+     */
+    boolean sameClass(Position other) {
+        for (long[] mask : board.classMasks()) {
+            if (parity(mask) != other.parity(mask)) {
+                return false;
+            }
         }
+        return true;
+    }
+
 
-        return symmID;
+    private int parity(long[] mask) {
+        int counter = 0;
+        for (int w = 0; w < bits.length; w++) {
+            counter += Long.bitCount(bits[w] & mask[w]);
+        }
+        return counter & 1;
     }
 
 
-    private String calculateSymmID() {
-        SymmetryHelper h = new SymmetryHelper(board.X, board.Y, this.occupied);
-        List<String> l = new ArrayList<String>();
-        l.add(h.id());
+    boolean isFinal() {
+        return pegCount() == 1;
+    }
 
-        if (board.rotate270) {
-            l.add(h.rotate270().id());
-        }
 
-        if (board.rotate180) {
-            l.add(h.rotate180().id());
-        }
+    /**
+     * Copies this position's bitboard into <code>key</code>, which must be at
+     * least <code>board.words</code> long. Two positions on the same board are
+     * equal if and only if their keys are.
+     */
+    void key(long[] key) {
+        System.arraycopy(bits, 0, key, 0, bits.length);
+    }
 
-        if (board.rotate90) {
-            l.add(h.rotate90().id());
-        }
 
-        if (board.verticalFlip) {
-            l.add(h.verticalFlip().id());
-        }
+    /**
+     * Copies this position's bitboard into <code>states</code> from index
+     * <code>offset</code> on, to be scored in a batch by a PositionScorer.
+     */
+    void key(long[] states, int offset) {
+        System.arraycopy(bits, 0, states, offset, bits.length);
+    }
 
-        if (board.horizontalFlip) {
-            l.add(h.horizontalFlip().id());
-        }
 
-        if (board.rightDiagonalFlip) {
-            l.add(h.rightDiagonalFlip().id());
+    /**
+     * @return true if every symmetry of the board maps this position onto itself.
+     */
+    boolean isSymmetric() {
+        long[] transformed = new long[bits.length];
+        for (Symmetry s : board.symmetries) {
+            s.apply(bits, transformed);
+            if (compareKeys(transformed, bits) != 0) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        if (board.leftDiagonalFlip) {
-            l.add(h.leftDiagonalFlip().id());
-        }
 
-        return Collections.min(l);
+    /**
+     * Like {@link #key(long[])} but for the symmetry-reduced position: every
+     * position that is a reflection or rotation of this one under the symmetries
+     * of the board gets the same key. <code>scratch</code> is a work buffer of
+     * the same size as the key. Computed without allocating.
+     */
+    void symmKey(long[] key, long[] scratch) {
+        board.layout.canonical(bits, key, scratch);
     }
 
 
-    int score() {
-        if (compactnessScore == -1) {
-            compactnessScore = calculateCompactnessScore();
+    // orders keys as unsigned multi-word numbers, most significant word last
+    static int compareKeys(long[] a, long[] b) {
+        for (int w = a.length - 1; w >= 0; w--) {
+            if (a[w] != b[w]) {
+                return Long.compareUnsigned(a[w], b[w]);
+            }
         }
-
-        return compactnessScore;
+        return 0;
     }
 
 
     /**
-     * This function is critical to the speed of the solver. It calculates
-     * the heuristic value that allows an aggressive pruning of the search tree.
+     * Border length of the bitboard held in <code>states</code> from index
+     * <code>offset</code> on: the heuristic that allows an aggressive pruning
+     * of the search tree, as <code>Scorers.borderLength()</code>.
      * <p>
-     * To quantify compactness I calculate the length of the border of the position.
      * If an occupied cell is next to an empty cell on any side, a 1 is added to
-     * the length of the border.
-     *
-     * @return int measure of the board position's border length. The longer the border's
-     * length, the less likely the position is to yield a solution. Shorter border
-     * means more compact position, that is more likely to produce a solution.
+     * the length of the border. The longer the border, the less likely the
+     * position is to yield a solution; a shorter border means a more compact
+     * position, more likely to produce one.
+     * <p>
+     * Every peg has four sides, and every pair of pegs next to each other hides
+     * one side of each, so the border is four times the number of pegs less twice
+     * the number of such pairs. The pairs are counted a word at a time: a peg
+     * whose right neighbour is a peg is a bit of the bitboard ANDed with itself
+     * shifted by one cell, outside the last column, and a peg whose neighbour
+     * below is a peg, the same with a shift of one row.
+     * <p>
+     * On boards of other geometries the neighbours of a hole are those along
+     * the lines of the geometry, and a peg has as many sides as the hole with
+     * the most neighbours; see Neighbours.
      */
-    int calculateCompactnessScore() {
-        int score = 0;
-
-        for (int i = 0; i < occupied.length; i++) {
-            if (board.allowed(i) && occupied[i]) {
-                int x = i % board.X;
-                int y = i / board.Y;
-                if (empty(x, y + 1)) {
-                    score += 1;
-                }
-                if (empty(x, y - 1)) {
-                    score += 1;
-                }
-                if (empty(x + 1, y)) {
-                    score += 1;
-                }
-                if (empty(x - 1, y)) {
-                    score += 1;
-                }
-            }
+    static int compactness(Board board, long[] states, int offset) {
+        if (board.neighbours != null) {
+            return board.neighbours.borderLength(states, offset);
         }
-
-        return score;
+        return board.layout.compactness(states, offset);
     }
 
 
@@ -214,85 +292,120 @@ public class Position {
         if (x >= board.X) return true;
         if (y >= board.Y) return true;
 
-        int pos = y * board.X + x;
-        if (!board.allowed(pos)) return true;
-        if (!occupied[pos]) return true;
-        return false;
+        return !get(y * board.X + x);
     }
 
 
-    boolean isValidMove(int x1, int y1, int x2, int y2) {
-        if (x1 < 0) return false;
-        if (x2 < 0) return false;
-        if (y1 < 0) return false;
-        if (y2 < 0) return false;
-        if (x1 >= board.X) return false;
-        if (x2 >= board.X) return false;
-        if (y1 >= board.Y) return false;
-        if (y2 >= board.Y) return false;
+    /**
+     * Plays a move on this position in place, as the visualizer does when it
+     * steps through a solution.
+     *
+     * @throws RuntimeException if the move is not a legal jump on this position.
+     */
+    public void play(Move move) {
+        int j = board.jumpIndex(move.x1, move.y1, move.x2, move.y2);
+        if (j < 0 || !canJump(j)) {
+            throw new RuntimeException("illegal move " + move.toString().trim());
+        }
 
-        int i1 = y1 * board.X + x1;
-        int i2 = y2 * board.X + x2;
+        flip(board.jumpFrom[j]);
+        flip(board.jumpOver[j]);
+        flip(board.jumpTo[j]);
+    }
 
-        if (!board.allowed(i1)) return false;
-        if (!board.allowed(i2)) return false;
-        if (!occupied[i1]) return false;
-        if (occupied[i2]) return false;
 
-        return true;
+    private void flip(int i) {
+        bits[i >>> 6] ^= 1L << i;
+        hash ^= board.zobrist[i];
+        if (board.zobristHigh != null) {
+            hashHigh ^= board.zobristHigh[i];
+        }
     }
 
 
-    // private pseudo constructor. To be used by the children method
-    private Position beget(int x1, int y1, int x2, int y2, int x3, int y3) {
-        Position child = new Position(board);
-        for (int i = 0; i < occupied.length; i++) {
-            child.set(i, occupied[i]);
-        }
+    private boolean canJump(int j) {
+        return get(board.jumpFrom[j]) && get(board.jumpOver[j]) && !get(board.jumpTo[j]);
+    }
+
 
-        child.set(x1, y1, false);
-        child.set(x2, y2, false);
-        child.set(x3, y3, true);
+    // private pseudo constructor. To be used by the children and parents
+    // methods. Flipping the three holes of a jump plays it forwards or backwards.
+    private Position beget(int j) {
+        long[] childBits = new long[bits.length];
+        board.layout.play(bits, childBits, j);
+        return new Position(board, childBits, Path.extend(history, j),
+                hash ^ board.jumpZobrist[j], hashHigh ^ board.jumpZobristHigh[j]);
+    }
 
-        child.history.addAll(this.history);
-        child.history.add(new Move(x1, y1, x3, y3));
 
-        return child;
+    /**
+     * @return the position that jump j leads to, with j added to its history.
+     */
+    Position child(int j) {
+        if (!canJump(j)) {
+            throw new RuntimeException("illegal move: " + board.jump(j));
+        }
+        return beget(j);
     }
 
 
+    /**
+     * Generates all the positions reachable from this one in a single jump,
+     * by scanning the board's precomputed jump table.
+     */
     List<Position> children() {
         List<Position> children = new ArrayList<Position>();
+        StateLayout layout = board.layout;
+        for (int j = layout.nextJump(bits, 0); j >= 0; j = layout.nextJump(bits, j + 1)) {
+            children.add(beget(j));
+        }
+        return children;
+    }
 
-        for (int i = 0; i < occupied.length; i++) {
-            if (board.allowed(i) && occupied[i]) {
-                int x = i % board.X;
-                int y = i / board.X;
 
-                if (isValidMove(x, y + 1, x, y + 2)) {
-                    children.add(beget(x, y, x, y + 1, x, y + 2));
-                }
+    /**
+     * Rough number of bytes a Position of the given board takes in a search
+     * frontier: the object, its bitboard, its link in the move history, the
+     * list slot that holds it and its key in a half-full dedup set.
+     */
+    static long estimatedSize(Board board) {
+        return 48 + (16 + 8 * board.words) + 24 + 8 + 2 * 8 * board.words;
+    }
 
-                if (isValidMove(x, y - 1, x, y - 2)) {
-                    children.add(beget(x, y, x, y - 1, x, y - 2));
-                }
 
-                if (isValidMove(x + 1, y, x + 2, y)) {
-                    children.add(beget(x, y, x + 1, y, x + 2, y));
-                }
+    Board board() {
+        return board;
+    }
 
-                if (isValidMove(x - 1, y, x - 2, y)) {
-                    children.add(beget(x, y, x - 1, y, x - 2, y));
-                }
 
-            }
+    /**
+     * Generates all the positions from which a single jump leads to this one,
+     * by playing the jumps of the board backwards. The history of a parent
+     * records the jumps played backwards, the most recent one first.
+     */
+    List<Position> parents() {
+        List<Position> parents = new ArrayList<Position>();
+        StateLayout layout = board.layout;
+        for (int j = layout.nextParent(bits, 0); j >= 0; j = layout.nextParent(bits, j + 1)) {
+            parents.add(beget(j));
         }
-
-        return children;
+        return parents;
     }
 
 
+    /**
+     * @return the moves that led from the initial position to this one.
+     * The list is rebuilt on every call.
+     */
     List<Move> getHistory() {
+        return Path.toMoves(board, history);
+    }
+
+
+    /**
+     * @return the jumps that led to this position, the most recent one first.
+     */
+    Path path() {
         return history;
     }
 }
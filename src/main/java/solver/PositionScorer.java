@@ -0,0 +1,25 @@
+package solver;
+
+/**
+ * PositionScorer ranks the positions of a pruned search: when a generation
+ * has to be cut, the positions with the lowest scores are kept, and positions
+ * with equal scores in the order they were generated.
+ * <p>
+ * Positions are scored in batches of bitboards, so that a scorer can run
+ * tight loops over primitive arrays instead of calling into one Position
+ * after another. A bitboard has one bit per cell of the board's grid, cell
+ * (x, y) being bit <code>i % 64</code> of long <code>i / 64</code> where
+ * <code>i = y * X + x</code>, and takes <code>(X * Y + 63) / 64</code> longs.
+ * <p>
+ * A parallel search calls its scorer from several threads at once, and every
+ * search expects a position to get the same score every time, so a scorer
+ * should hold no mutable state. {@link Scorers} has built-in scorers and
+ * {@link WeightedScorer} combines them.
+ */
+public interface PositionScorer {
+    /**
+     * @param states bitboards of <code>count</code> positions of <code>board</code>, back to back.
+     * @param scores receives the score of each position, from index 0; lower ranks better.
+     */
+    void score(Board board, long[] states, int count, int[] scores);
+}
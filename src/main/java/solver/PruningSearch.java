@@ -1,19 +1,72 @@
 package solver;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.Future;
 
 /**
  * Class PruningSearch encapsulates the pruning search algorithm of this Peg Solitaire solver.
  */
 public class PruningSearch {
+    /**
+     * What the search does when a generation would not fit in the memory budget.
+     */
+    public enum BudgetPolicy {
+        /**
+         * Keep only as many of the best positions as fit in the budget, as if the
+         * pruning number had been lowered for that generation.
+         */
+        PRUNE,
+
+        /**
+         * End the search without a solution. <code>budgetExceeded()</code>
+         * then returns true.
+         */
+        STOP
+    }
+
+    // generations smaller than this are not worth handing out to other threads
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    // positions deduplicated in memory at once by a disk frontier without a memory budget
+    private static final int DEFAULT_PARTITION_SIZE = 1 << 22;
+
     private final Position initialPosition;
     private int pruningNumber = 200;
+    private PositionScorer scorer = Scorers.borderLength();
     private boolean useSymmetry = false;
+    private float dedupLoadFactor = StateSet.DEFAULT_LOAD_FACTOR;
+    private int parallelism = 1;
+    private ParallelExpander expander = null;
+    private int hashKeyBits = 0;
+    private boolean verifyHashKeys = false;
+    private StateKeys keys = null;
+    private StateKeys exactKeys = null;
+    private long memoryBudget = 0;
+    private BudgetPolicy budgetPolicy = BudgetPolicy.PRUNE;
+    private boolean budgetExceeded = false;
+    private boolean unreachable = false;
+    private int targetX = -1;
+    private int targetY = -1;
+    private boolean usePagodas = true;
+    private final List<Pagoda> pagodas = new ArrayList<Pagoda>();
+    private TargetFilter target = null;
+    private File frontierDirectory = null;
+    private final List<SearchListener> listeners = new ArrayList<SearchListener>();
+    private boolean flightRecorderEvents = false;
+    private SearchMetrics metrics = null;
+    private long timeLimit = 0;
+    private long nodeBudget = 0;
+    private final SearchRunner runner;
+    // the cancellation of the search in progress, as seen by the search thread
+    private Cancellation running = null;
+    private int maxPruningNumber = 0;
+    private int escalationFactor = 2;
+    private int width = 0;
+    private boolean lastGenerationCut = false;
     private final List<Position> solutions;
+    private int lastGenerationSize = 0;
 
 
     /**
@@ -27,6 +80,14 @@ public class PruningSearch {
     {
         this.initialPosition = initialPosition;
         solutions = new ArrayList<Position>();
+        runner = new SearchRunner(new SearchRunner.Search()
+        {
+            @Override
+            public int run(Cancellation cancellation)
+            {
+                return search(cancellation);
+            }
+        });
     }
 
 
@@ -57,12 +118,409 @@ public class PruningSearch {
     }
 
 
+    /**
+     * <p>Sets the heuristic that decides which positions survive the pruning:
+     * those with the lowest scores. The default is
+     * <code>Scorers.borderLength()</code>; <code>Scorers</code> has others, and
+     * <code>WeightedScorer</code> combines them.</p>
+     *
+     * <p>The heuristic matters as much as the pruning number: one that suits
+     * the board finds solutions with a far smaller pruning number.</p>
+     */
+    public void setScorer(PositionScorer scorer)
+    {
+        if(scorer == null)
+        {
+            throw new IllegalArgumentException("scorer may not be null");
+        }
+        this.scorer = scorer;
+    }
+
+
+    /**
+     * Reduces every generation by the symmetries of the board. When a target hole
+     * is set, this is only done if every symmetry of the board leaves it in place.
+     */
     public void setUseSymmetry(boolean val)
     {
         useSymmetry = val;
     }
 
 
+    /**
+     * <p>Restricts solutions to those that leave the last peg in hole (x, y).
+     * By default any single remaining peg is a solution.</p>
+     *
+     * <p>With a target, children from which it is provably out of reach are
+     * dropped before the pruning number is applied, using pagoda functions
+     * generated for the target hole and those added with <code>addPagoda</code>.</p>
+     */
+    public void setTarget(int x, int y)
+    {
+        if(!initialPosition.board().allowed(x, y))
+        {
+            throw new RuntimeException("target is not a hole of the board");
+        }
+        targetX = x;
+        targetY = y;
+    }
+
+
+    /**
+     * Turns the pagoda functions generated for the target hole on or off. They
+     * are on by default. Pagoda functions added with <code>addPagoda</code> are
+     * always used.
+     */
+    public void setUsePagodas(boolean val)
+    {
+        usePagodas = val;
+    }
+
+
+    /**
+     * Adds a pagoda function to prune with. Without a target hole a child is only
+     * dropped if its value is below the smallest weight of any hole.
+     */
+    public void addPagoda(Pagoda pagoda)
+    {
+        if(pagoda.board() != initialPosition.board())
+        {
+            throw new IllegalArgumentException("pagoda function belongs to a different board");
+        }
+        pagodas.add(pagoda);
+    }
+
+
+    /**
+     * Sets the maximum fill ratio of the hash set used to drop duplicate positions
+     * within a generation. Lower values trade memory for shorter probe sequences.
+     * The default is 0.5.
+     *
+     * @param loadFactor fill ratio, between 0 and 1 exclusive.
+     */
+    public void setDedupLoadFactor(float loadFactor)
+    {
+        if(!(loadFactor > 0f && loadFactor < 1f))
+        {
+            throw new IllegalArgumentException("load factor must be between 0 and 1");
+        }
+        dedupLoadFactor = loadFactor;
+    }
+
+
+    /**
+     * <p>Sets the number of threads used to expand each generation. The default is 1,
+     * which keeps the whole search on the calling thread.</p>
+     *
+     * <p>With more than one thread, large generations are split across a ForkJoinPool
+     * that lives for the duration of <code>search()</code>. The positions kept in every
+     * generation, and so the solutions found, are the same as with a single thread.</p>
+     *
+     * @param threads number of worker threads, at least 1.
+     */
+    public void setParallelism(int threads)
+    {
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        parallelism = threads;
+    }
+
+
+    /**
+     * <p>Makes the search deduplicate positions by their Zobrist hash instead of
+     * their full bitboard. A hash key is 64 or 128 bits wide whatever the size of
+     * the board, which saves memory on boards of more than 64 cells, but two
+     * different positions may share a key, and the second would then be dropped.
+     * With 64-bit keys that takes billions of positions in one generation to
+     * become likely. The default, 0, keeps exact keys.</p>
+     *
+     * <p>Hash keys are only used when they are narrower than the bitboard.</p>
+     *
+     * @param bits 0, 64 or 128.
+     */
+    public void setHashKeys(int bits)
+    {
+        if(bits != 0 && bits != 64 && bits != 128)
+        {
+            throw new IllegalArgumentException("hash keys must be 0, 64 or 128 bits wide");
+        }
+        hashKeyBits = bits;
+    }
+
+
+    /**
+     * Testing aid: when hash keys are in use, also track the exact keys and throw
+     * an IllegalStateException on the first hash collision. This runs single-threaded
+     * and uses more memory than exact keys alone.
+     */
+    public void setVerifyHashKeys(boolean val)
+    {
+        verifyHashKeys = val;
+    }
+
+
+    /**
+     * <p>Caps the memory the search frontier may use. The budget is turned into a
+     * maximum number of positions per generation using an estimate of the memory
+     * a position and its dedup key take on this board, and the policy decides
+     * what happens to a generation that would be larger. A budget of 0, the
+     * default, means no limit.</p>
+     *
+     * <p>In single-threaded exact searches (pruning number 0) the limit is checked
+     * while the generation is built; in parallel ones, once it has been built.</p>
+     *
+     * @param bytes  memory budget of the frontier, in bytes.
+     * @param policy what to do when a generation exceeds the budget.
+     */
+    public void setMemoryBudget(long bytes, BudgetPolicy policy)
+    {
+        if(bytes < 0)
+        {
+            throw new IllegalArgumentException("memory budget may not be negative");
+        }
+        memoryBudget = bytes;
+        budgetPolicy = policy;
+    }
+
+
+    /**
+     * <p>Keeps the generations of exhaustive searches (pruning number 0) in
+     * memory-mapped files in the given directory instead of on the heap, so that
+     * the search is bounded by disk space rather than memory. Duplicates are dropped
+     * one hash partition at a time; with a memory budget, a partition holds as many
+     * positions as the budget allows, and the budget policy does not apply.</p>
+     *
+     * <p>The search runs on a single thread and finds the same solutions as in
+     * memory. Its files are deleted when it ends. Searches with a pruning number
+     * hold no more than that many positions and always stay in memory. Null, the
+     * default, keeps every frontier in memory.</p>
+     *
+     * @param directory existing directory for the temporary frontier files, or null.
+     */
+    public void setFrontierDirectory(File directory)
+    {
+        if(directory != null && !directory.isDirectory())
+        {
+            throw new IllegalArgumentException(directory + " is not a directory");
+        }
+        frontierDirectory = directory;
+    }
+
+
+    /**
+     * Registers a listener that is told about every generation as soon as it has
+     * been expanded.
+     */
+    public void addListener(SearchListener listener)
+    {
+        listeners.add(listener);
+    }
+
+
+    public void removeListener(SearchListener listener)
+    {
+        listeners.remove(listener);
+    }
+
+
+    /**
+     * Emits a <code>solver.Generation</code> Flight Recorder event for every
+     * generation, to be seen in a recording started with
+     * <code>-XX:StartFlightRecording</code> or from JDK Mission Control. Off by
+     * default; this needs a JVM with the jdk.jfr module.
+     */
+    public void setFlightRecorderEvents(boolean val)
+    {
+        flightRecorderEvents = val;
+    }
+
+
+    /**
+     * @return totals over the generations of the last search, or null if there
+     * has been no search yet.
+     */
+    public SearchSummary summary()
+    {
+        return metrics == null ? null : metrics.summary();
+    }
+
+
+    /**
+     * Stops every search after the given time, as if it had been cancelled;
+     * <code>timedOut()</code> then returns true. 0, the default, means no limit.
+     *
+     * @param millis time limit of a search, in milliseconds.
+     */
+    public void setTimeLimit(long millis)
+    {
+        if(millis < 0)
+        {
+            throw new IllegalArgumentException("time limit may not be negative");
+        }
+        timeLimit = millis;
+    }
+
+
+    /**
+     * Stops every search once it has generated more than the given number of
+     * children, counting every generation and every escalation round; see
+     * <code>nodeBudgetExceeded()</code>. The budget is checked after each
+     * generation. 0, the default, means no limit.
+     */
+    public void setNodeBudget(long nodes)
+    {
+        if(nodes < 0)
+        {
+            throw new IllegalArgumentException("node budget may not be negative");
+        }
+        nodeBudget = nodes;
+    }
+
+
+    /**
+     * <p>Widens the beam automatically when a search with a pruning number dead-ends,
+     * instead of leaving the caller to run it again from scratch with a larger
+     * <code>prune()</code>. Each round multiplies the pruning number by
+     * <code>factor</code>, up to <code>maxPruningNumber</code>, and the search
+     * ends with the first round that finds a solution.</p>
+     *
+     * <p>The generations of the failed round are kept, and the next round resumes
+     * from one of them rather than from the initial position: at first from four
+     * generations before the dead end, then from twice as far back every round.
+     * It never backs up further than the deepest generation that no beam has cut
+     * yet, since every wider beam would rebuild the same generations up to there.
+     * Listeners therefore see generation numbers start over at the resume point
+     * of every round. Combine with <code>setTimeLimit</code> or
+     * <code>setNodeBudget</code> to bound the whole escalation.</p>
+     *
+     * @param maxPruningNumber largest pruning number to escalate to, or 0 to turn escalation off.
+     * @param factor           factor by which the pruning number grows every round, at least 2.
+     */
+    public void setEscalation(int maxPruningNumber, int factor)
+    {
+        if(maxPruningNumber < 0)
+        {
+            throw new IllegalArgumentException("maximum pruning number may not be negative");
+        }
+        if(factor < 2)
+        {
+            throw new IllegalArgumentException("escalation factor must be at least 2");
+        }
+        this.maxPruningNumber = maxPruningNumber;
+        escalationFactor = factor;
+    }
+
+
+    /**
+     * @return pruning number of the last round of the last search. Without
+     * escalation, this is the pruning number set with <code>prune()</code>.
+     */
+    public int pruningNumberUsed()
+    {
+        return width;
+    }
+
+
+    /**
+     * <p>Asks the search in progress to stop. It can be called from any thread,
+     * and the search returns shortly after with the solutions found so far, which
+     * is usually none. <code>cancelled()</code> then returns true.</p>
+     *
+     * <p>A cancel that comes while no search is running, for example just before
+     * another thread calls <code>search()</code>, is kept and stops the next
+     * search as soon as it starts.</p>
+     */
+    public void cancel()
+    {
+        runner.cancel();
+    }
+
+
+    /**
+     * @return true if the last search was stopped by <code>cancel()</code>.
+     */
+    public boolean cancelled()
+    {
+        Cancellation c = runner.last();
+        return c != null && c.cancelled();
+    }
+
+
+    /**
+     * @return true if the last search was stopped by its time limit.
+     */
+    public boolean timedOut()
+    {
+        Cancellation c = runner.last();
+        return c != null && c.timedOut();
+    }
+
+
+    /**
+     * @return true if the last search was stopped by its node budget.
+     */
+    public boolean nodeBudgetExceeded()
+    {
+        Cancellation c = runner.last();
+        return c != null && c.outOfNodes();
+    }
+
+
+    /**
+     * <p>Starts the search on a new daemon thread and returns at once. The future
+     * completes with the number of solutions found, as returned by
+     * <code>search()</code>; cancelling it stops the search. Listeners are
+     * called on the search thread, so a user interface listening for progress
+     * has to hand the updates over to its own thread.</p>
+     *
+     * <p>The search must not be started again, or reconfigured, before the
+     * future has completed. A cancelled future only completes once the search
+     * thread has returned, so waiting on it, which then throws
+     * <code>CancellationException</code>, is enough.</p>
+     */
+    public Future<Integer> searchInBackground()
+    {
+        return runner.start(new Cancellation(timeLimitNanos(), nodeBudget));
+    }
+
+
+    /**
+     * @return true if the last search was stopped by the memory budget.
+     */
+    public boolean budgetExceeded()
+    {
+        return budgetExceeded;
+    }
+
+
+    /**
+     * @return true if the last search found no solution without expanding a single
+     * position, because the position class of the initial position differs from
+     * that of every target position.
+     */
+    public boolean targetUnreachable()
+    {
+        return unreachable;
+    }
+
+
+    /**
+     * @return the largest generation the memory budget allows, or 0 if there is no budget.
+     */
+    public int frontierLimit()
+    {
+        if(memoryBudget == 0)
+        {
+            return 0;
+        }
+
+        long limit = memoryBudget / Position.estimatedSize(initialPosition.board());
+        return (int) Math.max(1, Math.min(limit, Integer.MAX_VALUE - 8));
+    }
+
+
     public List<Move> getSolution(int i)
     {
         if(i < 0) { return null; }
@@ -82,71 +540,292 @@ public class PruningSearch {
 
 
     /**
-     * Initiates search.
+     * Initiates search. The search ends early, without solutions as a rule, when
+     * it is cancelled or runs past its time limit.
      *
      * @return number of solutions found. If 0 (zero) no solutions have been found.
      */
     public int search()
     {
-        List<Position> gen0 = new ArrayList<Position>();
-        gen0.add(initialPosition);
+        return runner.run(new Cancellation(timeLimitNanos(), nodeBudget));
+    }
+
+
+    private int search(Cancellation cancellation)
+    {
+        // every search starts afresh; nothing of the previous one carries over
+        running = cancellation;
+        solutions.clear();
+        lastGenerationSize = 0;
+        lastGenerationCut = false;
+        exactKeys = null;
+
+        Board board = initialPosition.board();
+        target = new TargetFilter(board, targetX, targetY, pagodas, usePagodas);
+        metrics = new SearchMetrics(new ArrayList<SearchListener>(listeners), flightRecorderEvents, cancellation);
+        budgetExceeded = false;
+        width = pruningNumber;
+        unreachable = !target.reachable(initialPosition);
+        if(unreachable)
+        {
+            return 0;
+        }
+
+        boolean symmetric = useSymmetry && target.symmetric(board);
+        keys = new StateKeys(board, symmetric, hashKeyBits);
+        if(verifyHashKeys && keys.hashed())
+        {
+            exactKeys = new StateKeys(board, symmetric, 0);
+        }
+
+        int frontierLimit = frontierLimit();
 
-        searchByGeneration(gen0);
+        if(frontierDirectory != null && pruningNumber == 0)
+        {
+            DiskFrontier frontier = new DiskFrontier(frontierDirectory, initialPosition, keys, target, dedupLoadFactor,
+                frontierLimit > 0 ? frontierLimit : DEFAULT_PARTITION_SIZE, metrics, cancellation);
+            try
+            {
+                solutions.addAll(frontier.search());
+            }
+            finally
+            {
+                frontier.close();
+            }
+            return solutions.size();
+        }
+
+        if(parallelism > 1 && exactKeys == null)
+        {
+            expander = new ParallelExpander(parallelism, keys, target, scorer, dedupLoadFactor, cancellation);
+        }
+
+        try
+        {
+            List<Position> generation = new ArrayList<Position>();
+            generation.add(initialPosition);
+
+            if(maxPruningNumber > pruningNumber && pruningNumber > 0)
+            {
+                escalate(generation, frontierLimit);
+                return solutions.size();
+            }
+
+            // Only the generation being expanded is referenced from here, so the
+            // one before it can be collected while the next one is being built.
+            while(generation.size() > 0 && solutions.size() == 0 && !cancellation.stopped())
+            {
+                generation = searchByGeneration(generation, frontierLimit);
+            }
+        }
+        finally
+        {
+            if(expander != null)
+            {
+                expander.shutdown();
+                expander = null;
+            }
+        }
         return solutions.size();
     }
 
 
-    void searchByGeneration(List<Position> currentGen)
+    /**
+     * Runs rounds of ever wider beam searches, each resuming from a generation
+     * kept from the round before; see <code>setEscalation</code>.
+     */
+    private void escalate(List<Position> first, int frontierLimit)
+    {
+        Escalation escalation = new Escalation(first, maxPruningNumber, escalationFactor);
+
+        while(true)
+        {
+            List<Position> generation = escalation.resumePoint();
+            while(generation.size() > 0 && solutions.size() == 0 && !running.stopped())
+            {
+                generation = searchByGeneration(generation, frontierLimit);
+                escalation.retain(generation, lastGenerationCut);
+            }
+
+            int next = escalation.widen(width);
+            if(solutions.size() > 0 || running.stopped() || budgetExceeded || effectiveWidth(next, frontierLimit)
+                == effectiveWidth(width, frontierLimit))
+            {
+                return;
+            }
+
+            escalation.backOff();
+            width = next;
+        }
+    }
+
+
+    /**
+     * Expands one generation. Final positions found among the children are added
+     * to the solutions.
+     *
+     * @return the next generation to expand, empty if the search is over.
+     */
+    List<Position> searchByGeneration(List<Position> currentGen, int frontierLimit)
     {
-        if(currentGen.size() == 0)
+        boolean parallel = expander != null && currentGen.size() >= PARALLEL_THRESHOLD;
+        int beamWidth = effectiveWidth(width, frontierLimit);
+
+        List<Position> children;
+        ExpansionStats stats = new ExpansionStats();
+        int solutionsBefore = solutions.size();
+        metrics.startGeneration();
+
+        if(beamWidth > 0)
+        {
+            if(parallel)
+            {
+                children = expander.expandBeam(currentGen, beamWidth, solutions, stats);
+            }
+            else
+            {
+                children = expandBeam(currentGen, beamWidth, stats);
+            }
+        }
+        else
+        {
+            if(parallel)
+            {
+                children = expander.expand(currentGen, stats);
+            }
+            else
+            {
+                children = expand(currentGen, frontierLimit, stats);
+            }
+
+            lastGenerationSize = children.size();
+
+            for(Position b : children) {
+                if(target.isTarget(b)) {
+                    solutions.add(b);
+                }
+            }
+        }
+
+        if(running.stopped())
+        {
+            // a partial generation is neither reported nor searched further
+            return new ArrayList<Position>();
+        }
+
+        lastGenerationCut = stats.unique > children.size();
+        boolean exceeded = frontierLimit > 0 && children.size() > frontierLimit;
+        int pegs = currentGen.get(0).pegCount() - 1;
+        metrics.endGeneration(initialPosition.pegCount() - pegs, pegs, currentGen.size(), stats,
+            exceeded ? 0 : children.size(), solutions.size() - solutionsBefore);
+
+        if(exceeded)
         {
-            return;
+            budgetExceeded = true;
+            return new ArrayList<Position>();
         }
 
-        Set<String> dedup = new TreeSet<String>();
+        return children;
+    }
+
+
+    private List<Position> expand(List<Position> currentGen, int frontierLimit, ExpansionStats stats)
+    {
+        Dedup dedup = new Dedup(keys, exactKeys, expectedChildren(currentGen.size()), dedupLoadFactor);
         List<Position> children = new ArrayList<Position>();
 
         for(Position b : currentGen) {
+            if(running.stopped())
+            {
+                break;
+            }
             for(Position child : b.children()) {
-                if(useSymmetry)
+                stats.generated++;
+                if(!target.feasible(child))
                 {
-                    if(!dedup.contains(child.symmID()))
-                    {
-                        dedup.add(child.symmID());
-                        children.add(child);
-                    }
+                    stats.infeasible++;
                 }
-                else
+                else if(dedup.add(child))
                 {
-                    if (!dedup.contains(child.id()))
+                    children.add(child);
+                    // one past the limit tells the caller the budget was exceeded
+                    if(frontierLimit > 0 && children.size() > frontierLimit)
                     {
-                        dedup.add(child.id());
-                        children.add(child);
+                        stats.unique = children.size();
+                        return children;
                     }
                 }
             }
         }
 
-        for(Position b : children) {
-            if(b.isFinal()) {
-                solutions.add(b);
+        stats.unique = children.size();
+        return children;
+    }
+
+
+    /**
+     * Expands a generation and selects the next one in a single pass. Every new
+     * child is checked for being final and then offered to a beam of
+     * <code>width</code> positions, so apart from the dedup keys no more than
+     * <code>width</code> children are held at any time. The beam keeps the same
+     * children, in the same order, as stably sorting the whole generation by
+     * score and cutting it after <code>width</code> positions.
+     */
+    private List<Position> expandBeam(List<Position> currentGen, int width, ExpansionStats stats)
+    {
+        Dedup dedup = new Dedup(keys, exactKeys, expectedChildren(currentGen.size()), dedupLoadFactor);
+        Beam beam = new Beam(width, scorer);
+        long seq = 0;
+
+        for(Position b : currentGen) {
+            if(running.stopped())
+            {
+                break;
+            }
+            for(Position child : b.children()) {
+                stats.generated++;
+                if(!target.feasible(child))
+                {
+                    stats.infeasible++;
+                }
+                else if(dedup.add(child))
+                {
+                    if(target.isTarget(child))
+                    {
+                        solutions.add(child);
+                    }
+                    beam.offer(child, seq++);
+                }
             }
         }
 
-        if(solutions.size() > 0)
+        lastGenerationSize = dedup.size();
+        stats.unique = dedup.size();
+        return beam.survivors();
+    }
+
+
+    // the beam width of a generation: the pruning number, narrowed to the memory budget if need be
+    private int effectiveWidth(int pruning, int frontierLimit)
+    {
+        if(frontierLimit > 0 && budgetPolicy == BudgetPolicy.PRUNE && (pruning == 0 || pruning > frontierLimit))
         {
-            return;
+            return frontierLimit;
         }
+        return pruning;
+    }
 
-        if(pruningNumber > 0 && children.size() > pruningNumber) {
-            Collections.sort(children, new PositionComparator());
-            List<Position> children2 = new ArrayList<Position>();
-            for(int i = 0; i < pruningNumber; i++) {
-                children2.add(children.get(i));
-            }
-            children = children2;
-        }
 
-        searchByGeneration(children);
+    private long timeLimitNanos()
+    {
+        return timeLimit * 1000000L;
+    }
+
+
+    // The dedup set is sized from the previous generation so that it
+    // rarely has to be rehashed while the generation is being expanded.
+    private int expectedChildren(int parents)
+    {
+        return Math.max(lastGenerationSize, parents * 4);
     }
 }
@@ -0,0 +1,111 @@
+package solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * RecordFile is a file of fixed-size records made of longs, written and read
+ * through memory-mapped windows. Records are appended one after the other and
+ * can then be read back in order or by index. Only the current window is
+ * mapped, so a file can be far larger than the heap.
+ * <p>
+ * A window always holds a whole number of records. Appending past the end
+ * of the file maps a new window, which grows the file by the size of that
+ * window; the records actually written are counted, not derived from the
+ * file length.
+ */
+final class RecordFile {
+    // size of a mapped window, rounded down to whole records
+    private static final long WINDOW_BYTES = 1L << 24;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final int recordLongs;
+    private final long windowRecords;
+
+    private LongBuffer window;
+    private long windowStart = -1;
+    private long count;
+
+
+    /**
+     * Creates an empty file, replacing any file of the same name.
+     *
+     * @param recordLongs number of longs in every record.
+     */
+    RecordFile(File file, int recordLongs) {
+        this.file = file;
+        this.recordLongs = recordLongs;
+        this.windowRecords = Math.max(1, WINDOW_BYTES / (8L * recordLongs));
+
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(0);
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot create frontier file " + file, e);
+        }
+        channel = raf.getChannel();
+    }
+
+
+    /**
+     * @return number of records appended so far.
+     */
+    long size() {
+        return count;
+    }
+
+
+    void append(long[] record) {
+        position(count);
+        window.put(record, 0, recordLongs);
+        count++;
+    }
+
+
+    /**
+     * Copies record <code>index</code> into <code>record</code>.
+     */
+    void read(long index, long[] record) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("record " + index + " of " + count);
+        }
+        position(index);
+        window.get(record, 0, recordLongs);
+    }
+
+
+    /**
+     * Closes the file and deletes it.
+     */
+    void delete() {
+        window = null;
+        try {
+            channel.close();
+            raf.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot close frontier file " + file, e);
+        }
+        file.delete();
+    }
+
+
+    // points the window at record index, mapping another window if needed
+    private void position(long index) {
+        long start = index - index % windowRecords;
+        if (start != windowStart) {
+            try {
+                window = channel.map(FileChannel.MapMode.READ_WRITE, start * recordLongs * 8L,
+                        windowRecords * recordLongs * 8L).asLongBuffer();
+            } catch (IOException e) {
+                throw new IllegalStateException("cannot map frontier file " + file, e);
+            }
+            windowStart = start;
+        }
+        window.position((int) ((index - start) * recordLongs));
+    }
+}
@@ -0,0 +1,133 @@
+package solver;
+
+/**
+ * Scorers is a catalogue of built-in PositionScorers. Lower scores rank
+ * better with all of them. They hold no state and may be shared between
+ * searches and threads.
+ */
+public final class Scorers {
+    private static final PositionScorer BORDER_LENGTH = new PositionScorer() {
+        @Override
+        public void score(Board board, long[] states, int count, int[] scores) {
+            for (int p = 0; p < count; p++) {
+                scores[p] = Position.compactness(board, states, p * board.words);
+            }
+        }
+    };
+
+    private static final PositionScorer ISOLATED_PEGS = new PositionScorer() {
+        @Override
+        public void score(Board board, long[] states, int count, int[] scores) {
+            int words = board.words;
+            if (board.neighbours != null) {
+                long[] scratch = new long[words];
+                for (int p = 0; p < count; p++) {
+                    scores[p] = board.neighbours.isolatedPegs(states, p * words, scratch);
+                }
+                return;
+            }
+
+            for (int p = 0; p < count; p++) {
+                int offset = p * words;
+                int isolated = 0;
+                for (int w = 0; w < words; w++) {
+                    // set where a cell has a peg next to it on some side
+                    long neighbours = (Bitboards.down(states, offset, words, w, 1) & board.notLastColumn[w])
+                            | (Bitboards.up(states, offset, words, w, 1) & board.notFirstColumn[w])
+                            | Bitboards.down(states, offset, words, w, board.X)
+                            | Bitboards.up(states, offset, words, w, board.X);
+                    isolated += Long.bitCount(states[offset + w] & ~neighbours);
+                }
+                scores[p] = isolated;
+            }
+        }
+    };
+
+    private static final PositionScorer DISTANCE_TO_CENTER = new PositionScorer() {
+        @Override
+        public void score(Board board, long[] states, int count, int[] scores) {
+            int[] distance = board.centerDistances();
+            for (int p = 0; p < count; p++) {
+                int sum = 0;
+                for (int w = 0; w < board.words; w++) {
+                    long word = states[p * board.words + w];
+                    while (word != 0) {
+                        sum += distance[(w << 6) + Long.numberOfTrailingZeros(word)];
+                        word &= word - 1;
+                    }
+                }
+                scores[p] = sum;
+            }
+        }
+    };
+
+
+    private Scorers() {
+    }
+
+
+    /**
+     * @return the length of the border between the pegs and the holes and edges
+     * around them, the measure of compactness that searches use by default.
+     * Sides follow the lines of the board's geometry, so a triangular board
+     * has six of them per hole.
+     */
+    public static PositionScorer borderLength() {
+        return BORDER_LENGTH;
+    }
+
+
+    /**
+     * @return the number of pegs with no peg next to them along any line of the
+     * board's geometry: in any of the four directions on the usual boards. Such
+     * a peg can only be removed once another peg has come next to it.
+     */
+    public static PositionScorer isolatedPegs() {
+        return ISOLATED_PEGS;
+    }
+
+
+    /**
+     * @return the sum over the pegs of their Manhattan distance to the centre
+     * of the grid, doubled, so that positions gathered in the middle rank first.
+     */
+    public static PositionScorer distanceToCenter() {
+        return DISTANCE_TO_CENTER;
+    }
+
+
+    /**
+     * @return the pagoda value of a position, negated and clamped to an int, so
+     * that positions with the most room to spare above the target rank first.
+     */
+    public static PositionScorer pagoda(final Pagoda pagoda) {
+        final Board pagodaBoard = pagoda.board();
+        final long[] weights = new long[pagodaBoard.X * pagodaBoard.Y];
+        for (int y = 0; y < pagodaBoard.Y; y++) {
+            for (int x = 0; x < pagodaBoard.X; x++) {
+                weights[y * pagodaBoard.X + x] = pagodaBoard.allowed(x, y) ? pagoda.weight(x, y) : 0;
+            }
+        }
+
+        return new PositionScorer() {
+            @Override
+            public void score(Board board, long[] states, int count, int[] scores) {
+                if (board != pagodaBoard) {
+                    throw new IllegalArgumentException("pagoda function belongs to a different board");
+                }
+
+                for (int p = 0; p < count; p++) {
+                    long sum = 0;
+                    for (int w = 0; w < board.words; w++) {
+                        long word = states[p * board.words + w];
+                        while (word != 0) {
+                            sum += weights[(w << 6) + Long.numberOfTrailingZeros(word)];
+                            word &= word - 1;
+                        }
+                    }
+                    scores[p] = (int) Math.max(-Integer.MAX_VALUE, Math.min(Integer.MAX_VALUE, -sum));
+                }
+            }
+        };
+    }
+}
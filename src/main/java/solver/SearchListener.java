@@ -0,0 +1,10 @@
+package solver;
+
+/**
+ * SearchListener is told about every generation of a PruningSearch as soon as
+ * it has been expanded. It is called on the thread that called
+ * <code>search()</code>, so a slow listener slows the search down.
+ */
+public interface SearchListener {
+    void generationExpanded(GenerationStats stats);
+}
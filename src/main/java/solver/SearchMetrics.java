@@ -0,0 +1,74 @@
+package solver;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * SearchMetrics times the generations of a search, turns what the expansion
+ * counted into GenerationStats, and passes them on to the listeners, the
+ * summary and, when enabled, Flight Recorder. It also charges the children
+ * of every generation to the node budget of the search.
+ */
+final class SearchMetrics {
+    private final List<SearchListener> listeners;
+    private final boolean flightRecorder;
+    private final Cancellation cancellation;
+    private final SearchSummary summary = new SearchSummary();
+    private final com.sun.management.ThreadMXBean threads;
+
+    private long startNanos;
+    private long startAllocated;
+
+
+    SearchMetrics(List<SearchListener> listeners, boolean flightRecorder, Cancellation cancellation) {
+        this.listeners = listeners;
+        this.flightRecorder = flightRecorder;
+        this.cancellation = cancellation;
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        threads = bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+                ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+
+    void startGeneration() {
+        startNanos = System.nanoTime();
+        startAllocated = allocated();
+    }
+
+
+    /**
+     * @param generation number of the new generation, the initial position being generation 0.
+     * @param pegs     number of pegs of the positions of the new generation.
+     * @param parents  number of positions expanded.
+     * @param frontier number of positions kept for the next generation.
+     */
+    void endGeneration(int generation, int pegs, long parents, ExpansionStats expansion, long frontier,
+                       int solutions) {
+        long nanos = System.nanoTime() - startNanos;
+        long allocated = allocated();
+        GenerationStats stats = new GenerationStats(generation, pegs, parents, expansion, frontier, solutions,
+                nanos, allocated < 0 || startAllocated < 0 ? -1 : allocated - startAllocated);
+
+        summary.add(stats);
+        cancellation.addNodes(expansion.generated);
+        for (SearchListener l : listeners) {
+            l.generationExpanded(stats);
+        }
+        if (flightRecorder) {
+            GenerationEvent.emit(stats);
+        }
+    }
+
+
+    SearchSummary summary() {
+        return summary;
+    }
+
+
+    private long allocated() {
+        return threads == null ? -1 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,164 @@
+package solver;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * SearchRunner runs the searches of a PruningSearch, on the caller's thread or
+ * on a background one, and hands a cancel to whichever of them is running.
+ * <p>
+ * Starting and ending a search is guarded by a lock against
+ * {@link #cancel()}, so that a cancel is never lost between two searches: one
+ * that comes while no search is running is kept, and stops the next search as
+ * soon as it starts.
+ */
+final class SearchRunner {
+    /**
+     * One run of a search, stopping when the cancellation says so.
+     */
+    interface Search {
+        int run(Cancellation cancellation);
+    }
+
+    private final Search search;
+    private final Object lock = new Object();
+    private volatile Cancellation running = null;
+    private boolean searching = false;
+    private boolean cancelPending = false;
+
+
+    SearchRunner(Search search) {
+        this.search = search;
+    }
+
+
+    /**
+     * Runs a search on the calling thread.
+     *
+     * @return number of solutions found.
+     */
+    int run(Cancellation cancellation) {
+        begin(cancellation);
+        try {
+            return search.run(cancellation);
+        } finally {
+            end();
+        }
+    }
+
+
+    /**
+     * Starts a search on a new daemon thread. Cancelling the future stops the
+     * search, but the future only completes once the search thread has
+     * returned; its <code>get</code> methods then throw
+     * <code>CancellationException</code>.
+     */
+    Future<Integer> start(final Cancellation cancellation) {
+        begin(cancellation);
+
+        FutureTask<Integer> task = new FutureTask<Integer>(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                try {
+                    return search.run(cancellation);
+                } finally {
+                    end();
+                }
+            }
+        }) {
+            private volatile boolean cancelRequested = false;
+
+
+            // stops the search but leaves the future to complete when it returns
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                if (isDone()) {
+                    return false;
+                }
+                cancelRequested = true;
+                cancellation.cancel();
+                return true;
+            }
+
+
+            @Override
+            public boolean isCancelled() {
+                return cancelRequested;
+            }
+
+
+            @Override
+            public Integer get() throws InterruptedException, ExecutionException {
+                Integer solutions = super.get();
+                if (cancelRequested) {
+                    throw new CancellationException();
+                }
+                return solutions;
+            }
+
+
+            @Override
+            public Integer get(long timeout, TimeUnit unit)
+                    throws InterruptedException, ExecutionException, TimeoutException {
+                Integer solutions = super.get(timeout, unit);
+                if (cancelRequested) {
+                    throw new CancellationException();
+                }
+                return solutions;
+            }
+        };
+
+        Thread t = new Thread(task, "pruning-search");
+        t.setDaemon(true);
+        t.start();
+        return task;
+    }
+
+
+    /**
+     * Stops the search that is running, or the next one to start if none is.
+     */
+    void cancel() {
+        synchronized (lock) {
+            if (searching) {
+                running.cancel();
+            } else {
+                cancelPending = true;
+            }
+        }
+    }
+
+
+    /**
+     * @return the cancellation of the running search, or of the last one, or
+     * null if there has been no search yet.
+     */
+    Cancellation last() {
+        return running;
+    }
+
+
+    // marks a search as running, applying a cancel that came before it
+    private void begin(Cancellation cancellation) {
+        synchronized (lock) {
+            running = cancellation;
+            searching = true;
+            if (cancelPending) {
+                cancelPending = false;
+                cancellation.cancel();
+            }
+        }
+    }
+
+
+    private void end() {
+        synchronized (lock) {
+            searching = false;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package solver;
+
+/**
+ * SearchSummary adds up the GenerationStats of a whole search.
+ */
+public final class SearchSummary {
+    private int generations;
+    private long children;
+    private long infeasible;
+    private long duplicates;
+    private long pruned;
+    private long maxFrontier;
+    private int solutions;
+    private long nanos;
+    private long allocatedBytes;
+
+
+    void add(GenerationStats g) {
+        generations++;
+        children += g.children();
+        infeasible += g.infeasible();
+        duplicates += g.duplicates();
+        pruned += g.pruned();
+        maxFrontier = Math.max(maxFrontier, g.frontier());
+        solutions += g.solutions();
+        nanos += g.nanos();
+        allocatedBytes = allocatedBytes < 0 || g.allocatedBytes() < 0 ? -1 : allocatedBytes + g.allocatedBytes();
+    }
+
+
+    public int generations() {
+        return generations;
+    }
+
+
+    public long children() {
+        return children;
+    }
+
+
+    public long infeasible() {
+        return infeasible;
+    }
+
+
+    public long duplicates() {
+        return duplicates;
+    }
+
+
+    /**
+     * @return fraction of all feasible children that were duplicates.
+     */
+    public double dedupHitRate() {
+        long feasible = children - infeasible;
+        return feasible == 0 ? 0 : (double) duplicates / feasible;
+    }
+
+
+    public long pruned() {
+        return pruned;
+    }
+
+
+    /**
+     * @return size of the largest generation kept.
+     */
+    public long maxFrontier() {
+        return maxFrontier;
+    }
+
+
+    public int solutions() {
+        return solutions;
+    }
+
+
+    /**
+     * @return time spent expanding generations, in nanoseconds.
+     */
+    public long nanos() {
+        return nanos;
+    }
+
+
+    /**
+     * @return bytes allocated by the searching thread, or -1 if the JVM cannot tell.
+     */
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("%d generations, %d children, %.1f%% duplicates, %d infeasible, %d pruned, "
+                        + "largest frontier %d, %d solutions, %.3f ms",
+                generations, children, 100 * dedupHitRate(), infeasible, pruned, maxFrontier, solutions,
+                nanos / 1e6);
+    }
+}
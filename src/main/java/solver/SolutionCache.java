@@ -0,0 +1,350 @@
+package solver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SolutionCache is an on-disk store of solved problems, so that a board and
+ * start that have been solved once need not be searched again.
+ * <p>
+ * A problem is identified by the board's dimensions, hole mask and jumps,
+ * the start and target holes and the search options. Start and target are first
+ * normalized under the symmetries of the board: of all the pairs the symmetries
+ * turn them into, the smallest is used, and the solution is stored as seen from
+ * it. Problems that are reflections or rotations of each other therefore share
+ * one entry, and a hit is turned back into moves from the start that was asked
+ * for.
+ * <p>
+ * Solutions are stored as jump indices of one or two bytes each, depending on
+ * the number of jumps on the board, and appended to a single file as they are
+ * added. The whole file is read into memory when the cache is opened, so a
+ * lookup is a hash map access and the decoding of a few dozen bytes. Problems
+ * that were searched without finding a solution are recorded too, along with
+ * whether the position class of the start ruled out the target.
+ * <p>
+ * Instances are thread safe. A file should only be opened by one process at a time.
+ */
+public class SolutionCache {
+    private static final int MAGIC = 0x50534332; // "PSC2"
+
+    private final File file;
+    private final Map<ByteBuffer, byte[]> entries = new HashMap<ByteBuffer, byte[]>();
+    // problems whose target the position class of the start rules out
+    private final Set<ByteBuffer> unreachable = new HashSet<ByteBuffer>();
+    private DataOutputStream out;
+
+
+    /**
+     * Opens the cache held in <code>file</code>, creating the file if it does not exist.
+     */
+    public SolutionCache(File file) {
+        this.file = file;
+
+        if (file.exists() && file.length() > 0) {
+            load();
+        } else {
+            open(false);
+            try {
+                out.writeInt(MAGIC);
+                out.flush();
+            } catch (IOException e) {
+                throw new IllegalStateException("cannot write solution cache " + file, e);
+            }
+        }
+    }
+
+
+    /**
+     * @return number of problems in the cache.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+
+    /**
+     * Looks a problem up.
+     *
+     * @param targetX column of the target hole, or -1 if any single peg will do.
+     * @param options search options, compared as strings.
+     * @return null if the problem is not in the cache. Otherwise the stored
+     * solution from (startX, startY), or an empty list if the search found none.
+     */
+    public synchronized List<Move> lookup(Board board, int startX, int startY, int targetX, int targetY,
+                                          String options) {
+        int start = startY * board.X + startX;
+        int target = targetX < 0 ? -1 : targetY * board.X + targetX;
+        Symmetry g = normalizer(board, start, target);
+
+        byte[] encoded = entries.get(key(board, start, target, g, options));
+        if (encoded == null) {
+            return null;
+        }
+
+        // stored moves are seen from the normalized start; carry them back
+        Symmetry back = g == null ? null : board.inverse(g);
+        boolean wide = board.jumpCount > 256;
+        int n = wide ? encoded.length / 2 : encoded.length;
+        List<Move> moves = new ArrayList<Move>(n);
+        for (int k = 0; k < n; k++) {
+            int j = wide ? ((encoded[2 * k] & 0xff) << 8) | (encoded[2 * k + 1] & 0xff) : encoded[k] & 0xff;
+            moves.add(board.jump(back == null ? j : board.transformJump(back, j)));
+        }
+        return moves;
+    }
+
+
+    /**
+     * @return true if the problem is in the cache and was stored as having a
+     * target that the position class of the start rules out; see
+     * {@link PruningSearch#targetUnreachable()}.
+     */
+    public synchronized boolean targetUnreachable(Board board, int startX, int startY, int targetX, int targetY,
+                                                  String options) {
+        int start = startY * board.X + startX;
+        int target = targetX < 0 ? -1 : targetY * board.X + targetX;
+        return unreachable.contains(key(board, start, target, normalizer(board, start, target), options));
+    }
+
+
+    /**
+     * Adds a problem to the cache and to its file, replacing any earlier entry.
+     *
+     * @param solution moves from (startX, startY), or null or an empty list if the search found none.
+     */
+    public void store(Board board, int startX, int startY, int targetX, int targetY,
+                      String options, List<Move> solution) {
+        store(board, startX, startY, targetX, targetY, options, solution, false);
+    }
+
+
+    /**
+     * Adds a problem to the cache and to its file, replacing any earlier entry.
+     *
+     * @param solution moves from (startX, startY), or null or an empty list if the search found none.
+     * @param targetUnreachable whether the search found the target ruled out by
+     * the position class of the start.
+     */
+    public synchronized void store(Board board, int startX, int startY, int targetX, int targetY,
+                                   String options, List<Move> solution, boolean targetUnreachable) {
+        if (board.jumpCount > 65536) {
+            throw new IllegalArgumentException("board has too many jumps to cache its solutions");
+        }
+
+        int start = startY * board.X + startX;
+        int target = targetX < 0 ? -1 : targetY * board.X + targetX;
+        Symmetry g = normalizer(board, start, target);
+
+        boolean wide = board.jumpCount > 256;
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        if (solution != null) {
+            for (Move m : solution) {
+                int j = board.jumpIndex(m.x1, m.y1, m.x2, m.y2);
+                if (j < 0) {
+                    throw new IllegalArgumentException("move " + m + " is not a jump of the board");
+                }
+                j = g == null ? j : board.transformJump(g, j);
+                if (wide) {
+                    encoded.write(j >>> 8);
+                }
+                encoded.write(j);
+            }
+        }
+
+        ByteBuffer key = key(board, start, target, g, options);
+        byte[] moves = encoded.toByteArray();
+        try {
+            out.writeInt(key.remaining());
+            out.write(key.array(), 0, key.remaining());
+            out.writeInt(moves.length);
+            out.write(moves);
+            out.writeBoolean(targetUnreachable);
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot write solution cache " + file, e);
+        }
+        entries.put(key, moves);
+        if (targetUnreachable) {
+            unreachable.add(key);
+        } else {
+            unreachable.remove(key);
+        }
+    }
+
+
+    /**
+     * Looks up the problem that a job describes.
+     *
+     * @see #lookup(Board, int, int, int, int, String)
+     */
+    public List<Move> lookup(SolveJob job) {
+        return lookup(job.board(), job.startX(), job.startY(), job.targetX(), job.targetY(), job.options());
+    }
+
+
+    /**
+     * @see #targetUnreachable(Board, int, int, int, int, String)
+     */
+    public boolean targetUnreachable(SolveJob job) {
+        return targetUnreachable(job.board(), job.startX(), job.startY(), job.targetX(), job.targetY(),
+                job.options());
+    }
+
+
+    /**
+     * Adds the problem that a job describes.
+     *
+     * @see #store(Board, int, int, int, int, String, List)
+     */
+    public void store(SolveJob job, List<Move> solution) {
+        store(job, solution, false);
+    }
+
+
+    /**
+     * Adds the problem that a job describes.
+     *
+     * @see #store(Board, int, int, int, int, String, List, boolean)
+     */
+    public void store(SolveJob job, List<Move> solution, boolean targetUnreachable) {
+        store(job.board(), job.startX(), job.startY(), job.targetX(), job.targetY(), job.options(), solution,
+                targetUnreachable);
+    }
+
+
+    public synchronized void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot close solution cache " + file, e);
+        }
+    }
+
+
+    private void load() {
+        long valid = 4;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC) {
+                throw new IllegalStateException(file + " is not a solution cache");
+            }
+
+            while (true) {
+                byte[] key = new byte[in.readInt()];
+                in.readFully(key);
+                byte[] moves = new byte[in.readInt()];
+                in.readFully(moves);
+                boolean ruledOut = in.readBoolean();
+                entries.put(ByteBuffer.wrap(key), moves);
+                if (ruledOut) {
+                    unreachable.add(ByteBuffer.wrap(key));
+                } else {
+                    unreachable.remove(ByteBuffer.wrap(key));
+                }
+                valid += 9 + key.length + moves.length;
+            }
+        } catch (EOFException e) {
+            // end of the records
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot read solution cache " + file, e);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // nothing was written
+                }
+            }
+        }
+
+        // a record cut short, by a crash while it was written, is dropped
+        // so that new records follow the last complete one
+        if (valid < file.length()) {
+            try {
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                raf.setLength(valid);
+                raf.close();
+            } catch (IOException e) {
+                throw new IllegalStateException("cannot repair solution cache " + file, e);
+            }
+        }
+        open(true);
+    }
+
+
+    private void open(boolean append) {
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, append)));
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot open solution cache " + file, e);
+        }
+    }
+
+
+    // the symmetry that turns (start, target) into the smallest pair, or null for the identity
+    private static Symmetry normalizer(Board board, int start, int target) {
+        Symmetry best = null;
+        int bestStart = start;
+        int bestTarget = target;
+        for (Symmetry s : board.symmetries) {
+            int s2 = s.apply(start);
+            int t2 = target < 0 ? -1 : s.apply(target);
+            if (s2 < bestStart || (s2 == bestStart && t2 < bestTarget)) {
+                best = s;
+                bestStart = s2;
+                bestTarget = t2;
+            }
+        }
+        return best;
+    }
+
+
+    // tells apart boards with the same holes but different geometries
+    private static long jumpDigest(Board board) {
+        long h = 0;
+        for (int j = 0; j < board.jumpCount; j++) {
+            h = h * 31 + board.jumpFrom[j];
+            h = h * 31 + board.jumpOver[j];
+            h = h * 31 + board.jumpTo[j];
+        }
+        return h;
+    }
+
+
+    private static ByteBuffer key(Board board, int start, int target, Symmetry g, String options) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream key = new DataOutputStream(bytes);
+        try {
+            key.writeInt(board.X);
+            key.writeInt(board.Y);
+            for (long w : board.holeMask()) {
+                key.writeLong(w);
+            }
+            key.writeInt(board.jumpCount);
+            key.writeLong(jumpDigest(board));
+            key.writeInt(g == null ? start : g.apply(start));
+            key.writeInt(target < 0 ? -1 : g == null ? target : g.apply(target));
+            key.writeUTF(options);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+}
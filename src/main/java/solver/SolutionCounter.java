@@ -0,0 +1,178 @@
+package solver;
+
+import java.util.ArrayList;
+
+/**
+ * Class SolutionCounter counts the distinct move sequences that solve a board,
+ * that is that leave a single peg, without enumerating them.
+ * <p>
+ * Every jump removes one peg, so the positions reachable from the initial one
+ * fall into layers by peg count, and a jump always leads from one layer to the
+ * next. The number of move sequences leading to a position is the sum of those
+ * leading to its parents, so the layers are swept one after the other, keeping
+ * one path count per position in a StateMap. Only two layers are held at any
+ * time, and the count of a solution is the count of its final position.
+ * <p>
+ * Positions that lead nowhere can be reached in far more ways than there are
+ * solutions, more than a long can hold even on the English board. Counts are
+ * therefore kept modulo 2<sup>64</sup>, which leaves sums of counts exact as
+ * long as the final ones fit, and every count also carries a floating point
+ * estimate that tells whether they do.
+ * <p>
+ * To count solutions from several holes, use one counter per initial position.
+ */
+public class SolutionCounter {
+    private final Position initialPosition;
+    private boolean useSymmetry = false;
+
+    private long[] finishCounts;
+    private long total;
+    private long positions;
+
+
+    /**
+     * @param initialPosition position whose solutions to count.
+     */
+    public SolutionCounter(Position initialPosition) {
+        this.initialPosition = initialPosition;
+    }
+
+
+    /**
+     * Merges positions that are reflections or rotations of each other, which
+     * makes the layers up to eight times smaller. This is only done if the
+     * initial position is itself symmetric; otherwise the setting is ignored.
+     * The counts are the same either way.
+     */
+    public void setUseSymmetry(boolean val) {
+        useSymmetry = val;
+    }
+
+
+    /**
+     * Counts the solutions of the initial position.
+     *
+     * @return number of distinct move sequences that leave a single peg.
+     * @throws IllegalStateException if the count does not fit in a long.
+     */
+    public long count() {
+        Board board = initialPosition.board();
+        boolean symmetric = useSymmetry && initialPosition.isSymmetric();
+        StateKeys keys = new StateKeys(board, symmetric, 0);
+        int width = keys.width();
+
+        finishCounts = new long[board.X * board.Y];
+        total = 0;
+        positions = 1;
+
+        TargetFilter anyFinish = new TargetFilter(board, -1, -1, new ArrayList<Pagoda>(), false);
+        if (!anyFinish.reachable(initialPosition)) {
+            return 0;
+        }
+
+        long[] key = new long[width];
+        long[] childKey = new long[width];
+        StateMap layer = new StateMap(width, 1, StateSet.DEFAULT_LOAD_FACTOR);
+        StateMap estimates = new StateMap(width, 1, StateSet.DEFAULT_LOAD_FACTOR);
+        keys.key(initialPosition, key);
+        layer.put(key, 1);
+        estimates.put(key, Double.doubleToLongBits(1.0));
+
+        for (int pegs = initialPosition.pegCount(); pegs > 1 && layer.size() > 0; pegs--) {
+            StateMap next = new StateMap(width, layer.size() * 4, StateSet.DEFAULT_LOAD_FACTOR);
+            StateMap nextEstimates = new StateMap(width, layer.size() * 4, StateSet.DEFAULT_LOAD_FACTOR);
+            for (int slot = 0; slot < layer.slots(); slot++) {
+                if (!layer.occupied(slot)) {
+                    continue;
+                }
+
+                // With symmetric keys the key is the bitboard of one member of the
+                // position's class. Since the initial position is symmetric, every
+                // member has the same count, so the class count flows along the jumps
+                // of a single member without weighting.
+                long count = layer.value(slot);
+                long[] bits = new long[width];
+                layer.key(slot, bits);
+                double estimate = Double.longBitsToDouble(estimates.get(bits, 0L));
+                for (Position child : Position.restore(board, bits).children()) {
+                    keys.key(child, childKey);
+                    next.addTo(childKey, count);
+                    double e = Double.longBitsToDouble(nextEstimates.get(childKey, 0L)) + estimate;
+                    nextEstimates.put(childKey, Double.doubleToLongBits(e));
+                }
+            }
+            layer = next;
+            estimates = nextEstimates;
+            positions += layer.size();
+        }
+
+        double totalEstimate = 0;
+        for (int slot = 0; slot < layer.slots(); slot++) {
+            if (layer.occupied(slot)) {
+                layer.key(slot, key);
+                totalEstimate += Double.longBitsToDouble(estimates.get(key, 0L));
+                finish(board, key, layer.value(slot), symmetric);
+            }
+        }
+        if (totalEstimate >= 0x1p63) {
+            throw new IllegalStateException("solution count does not fit in a long");
+        }
+        return total;
+    }
+
+
+    /**
+     * @return number of solutions, found by the last count, that leave the last peg in hole (x, y).
+     */
+    public long solutions(int x, int y) {
+        if (finishCounts == null) {
+            throw new IllegalStateException("count() has not been called");
+        }
+        return finishCounts[y * initialPosition.board().X + x];
+    }
+
+
+    /**
+     * @return number of distinct positions, or classes of symmetric positions,
+     * visited by the last count.
+     */
+    public long positions() {
+        return positions;
+    }
+
+
+    // spreads the count of a single-peg position over the holes it stands for
+    private void finish(Board board, long[] bits, long count, boolean symmetric) {
+        int cell = 0;
+        for (int w = 0; w < bits.length; w++) {
+            if (bits[w] != 0) {
+                cell = (w << 6) + Long.numberOfTrailingZeros(bits[w]);
+                break;
+            }
+        }
+        total += count;
+
+        if (!symmetric) {
+            finishCounts[cell] += count;
+            return;
+        }
+
+        // the initial position is symmetric, so each hole of the orbit is
+        // reached by the same number of solutions
+        boolean[] orbit = new boolean[finishCounts.length];
+        orbit[cell] = true;
+        int size = 1;
+        for (Symmetry s : board.symmetries) {
+            int image = s.apply(cell);
+            if (!orbit[image]) {
+                orbit[image] = true;
+                size++;
+            }
+        }
+        for (int i = 0; i < orbit.length; i++) {
+            if (orbit[i]) {
+                finishCounts[i] += count / size;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package solver;
+
+/**
+ * SolveJob describes one search for a BatchSolver: a board, the hole emptied
+ * at the start and the options of the PruningSearch to run. Jobs on the same
+ * Board instance share its jump table, symmetries and other precomputed data.
+ */
+public final class SolveJob {
+    private final Board board;
+    private final int startX;
+    private final int startY;
+    private int targetX = -1;
+    private int targetY = -1;
+    private int pruningNumber = 200;
+    private boolean useSymmetry = false;
+
+
+    /**
+     * @param board  board to solve.
+     * @param startX column of the hole that is empty at the start.
+     * @param startY row of the hole that is empty at the start.
+     */
+    public SolveJob(Board board, int startX, int startY) {
+        if (!board.allowed(startX, startY)) {
+            throw new RuntimeException("start is not a hole of the board");
+        }
+
+        this.board = board;
+        this.startX = startX;
+        this.startY = startY;
+    }
+
+
+    /**
+     * Restricts solutions to those that leave the last peg in hole (x, y).
+     */
+    public void setTarget(int x, int y) {
+        if (!board.allowed(x, y)) {
+            throw new RuntimeException("target is not a hole of the board");
+        }
+        targetX = x;
+        targetY = y;
+    }
+
+
+    /**
+     * Sets the pruning number of the search; see {@link PruningSearch#prune(int)}.
+     */
+    public void prune(int prune) {
+        pruningNumber = prune;
+    }
+
+
+    public void setUseSymmetry(boolean val) {
+        useSymmetry = val;
+    }
+
+
+    public Board board() {
+        return board;
+    }
+
+
+    public int startX() {
+        return startX;
+    }
+
+
+    public int startY() {
+        return startY;
+    }
+
+
+    public int targetX() {
+        return targetX;
+    }
+
+
+    public int targetY() {
+        return targetY;
+    }
+
+
+    /**
+     * @return the search options of this job, other than the holes, as a string
+     * that identifies them in a SolutionCache.
+     */
+    String options() {
+        return "prune=" + pruningNumber + ",symmetry=" + useSymmetry;
+    }
+
+
+    /**
+     * @return a new search configured as this job describes.
+     */
+    PruningSearch createSearch() {
+        PruningSearch search = new PruningSearch(board.initialPosition(startX, startY));
+        search.prune(pruningNumber);
+        search.setUseSymmetry(useSymmetry);
+        if (targetX >= 0) {
+            search.setTarget(targetX, targetY);
+        }
+        return search;
+    }
+
+
+    @Override
+    public String toString() {
+        return "start (" + startX + ", " + startY + ")"
+                + (targetX >= 0 ? " target (" + targetX + ", " + targetY + ")" : "")
+                + " prune " + pruningNumber;
+    }
+}
@@ -0,0 +1,106 @@
+package solver;
+
+import java.util.List;
+
+/**
+ * SolveResult is the outcome of one SolveJob run by a BatchSolver.
+ */
+public final class SolveResult {
+    private final SolveJob job;
+    private final int solutions;
+    private final List<Move> solution;
+    private final Position finalPosition;
+    private final boolean targetUnreachable;
+    private final long millis;
+    private final boolean cached;
+
+
+    SolveResult(SolveJob job, PruningSearch search, int solutions, long millis) {
+        this.job = job;
+        this.solutions = solutions;
+        this.solution = search.getSolution(0);
+        this.finalPosition = search.getFinalPosition(0);
+        this.targetUnreachable = search.targetUnreachable();
+        this.millis = millis;
+        this.cached = false;
+    }
+
+
+    /**
+     * Result taken from a SolutionCache: the stored solution, replayed from the
+     * start of the job, or none if the list is empty.
+     */
+    SolveResult(SolveJob job, List<Move> solution, boolean targetUnreachable, long millis) {
+        this.job = job;
+        this.solutions = solution.isEmpty() ? 0 : 1;
+        this.solution = solution.isEmpty() ? null : solution;
+        this.targetUnreachable = targetUnreachable;
+        this.millis = millis;
+        this.cached = true;
+
+        Position p = null;
+        if (!solution.isEmpty()) {
+            p = job.board().initialPosition(job.startX(), job.startY());
+            for (Move m : solution) {
+                p.play(m);
+            }
+        }
+        this.finalPosition = p;
+    }
+
+
+    public SolveJob job() {
+        return job;
+    }
+
+
+    /**
+     * @return number of solutions found. If 0 (zero) no solutions have been found.
+     * A result taken from the cache holds a single solution.
+     */
+    public int solutions() {
+        return solutions;
+    }
+
+
+    /**
+     * @return the first solution found, or null if there is none.
+     */
+    public List<Move> solution() {
+        return solution;
+    }
+
+
+    /**
+     * @return the final position of the first solution, or null if there is none.
+     */
+    public Position finalPosition() {
+        return finalPosition;
+    }
+
+
+    /**
+     * @return true if the position class of the start ruled out every target; see
+     * {@link PruningSearch#targetUnreachable()}. A result taken from the cache
+     * carries the verdict stored with it.
+     */
+    public boolean targetUnreachable() {
+        return targetUnreachable;
+    }
+
+
+    /**
+     * @return wall clock time the search took, in milliseconds.
+     */
+    public long millis() {
+        return millis;
+    }
+
+
+    /**
+     * @return true if the result was taken from a SolutionCache instead of searched for.
+     */
+    public boolean fromCache() {
+        return cached;
+    }
+}
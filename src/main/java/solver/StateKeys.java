@@ -0,0 +1,81 @@
+package solver;
+
+/**
+ * StateKeys turns positions into the fixed-width primitive keys used to
+ * deduplicate them. A key is either the position's exact bitboard, optionally
+ * reduced by the symmetries of the board, or its Zobrist hash.
+ * <p>
+ * Hashed keys are one or two longs wide whatever the size of the board, at the
+ * price of a tiny probability that two different positions share a key. They
+ * are only used when they are actually narrower than the exact key.
+ * <p>
+ * Instances hold a scratch buffer and are not thread safe. Use
+ * {@link #forThread()} to get an instance for another thread.
+ */
+final class StateKeys {
+    private final Board board;
+    private final boolean symmetric;
+    private final int hashBits;
+    private final boolean hashed;
+    private final int width;
+    private final long[] canonical;
+    private final long[] scratch;
+
+
+    /**
+     * @param hashBits 0 for exact keys, otherwise 64 or 128 for Zobrist hash keys.
+     */
+    StateKeys(Board board, boolean symmetric, int hashBits) {
+        if (hashBits != 0 && hashBits != 64 && hashBits != 128) {
+            throw new IllegalArgumentException("hash keys must be 64 or 128 bits wide");
+        }
+
+        this.board = board;
+        this.symmetric = symmetric;
+        this.hashBits = hashBits;
+        this.hashed = hashBits > 0 && hashBits / 64 < board.words;
+        this.width = hashed ? hashBits / 64 : board.words;
+        this.canonical = new long[board.words];
+        this.scratch = new long[board.words];
+    }
+
+
+    StateKeys forThread() {
+        return new StateKeys(board, symmetric, hashBits);
+    }
+
+
+    int width() {
+        return width;
+    }
+
+
+    boolean hashed() {
+        return hashed;
+    }
+
+
+    void key(Position p, long[] key) {
+        if (!hashed) {
+            if (symmetric) {
+                p.symmKey(key, scratch);
+            } else {
+                p.key(key);
+            }
+            return;
+        }
+
+        if (symmetric) {
+            p.symmKey(canonical, scratch);
+            key[0] = board.zobristHash(canonical);
+            if (width > 1) {
+                key[1] = board.zobristHashHigh(canonical);
+            }
+        } else {
+            key[0] = p.hash();
+            if (width > 1) {
+                key[1] = p.hashHigh();
+            }
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package solver;
+
+/**
+ * StateLayout holds the operations that a search runs on the bitboard of
+ * every position it generates: finding the jumps that can be played, playing
+ * them, reducing the bitboard by the symmetries of the board and scoring it.
+ * <p>
+ * Board picks one of three implementations by the number of longs its
+ * bitboards take. Boards of up to 64 cells and boards of up to 128 cells keep
+ * the whole bitboard in local variables and test every jump with per-word
+ * masks, so that no operation loops over words. Larger boards test the three
+ * cells of a jump through precomputed word indices and masks. None of the
+ * operations allocates.
+ */
+abstract class StateLayout {
+
+    static StateLayout forBoard(Board board) {
+        switch (board.words) {
+            case 1:
+                return new OneWord(board);
+            case 2:
+                return new TwoWords(board);
+            default:
+                return new Words(board);
+        }
+    }
+
+
+    /**
+     * @return the first jump from <code>j</code> on that can be played on
+     * bitboard <code>s</code>, or -1 if there is none.
+     */
+    abstract int nextJump(long[] s, int j);
+
+
+    /**
+     * @return the first jump from <code>j</code> on that can be played
+     * backwards on bitboard <code>s</code>, or -1 if there is none.
+     */
+    abstract int nextParent(long[] s, int j);
+
+
+    /**
+     * Plays jump j, forwards or backwards, on <code>src</code> into
+     * <code>dst</code>, which may be the same array.
+     */
+    abstract void play(long[] src, long[] dst, int j);
+
+
+    /**
+     * Copies the smallest of the bitboard and its images under the symmetries of
+     * the board, as ordered by <code>Position.compareKeys</code>, into
+     * <code>key</code>. <code>scratch</code> is a work buffer of the same size.
+     */
+    abstract void canonical(long[] s, long[] key, long[] scratch);
+
+
+    /**
+     * @return border length of the bitboard held in <code>states</code> from
+     * index <code>offset</code> on; see <code>Position.compactness</code>.
+     */
+    abstract int compactness(long[] states, int offset);
+
+
+    private static final class OneWord extends StateLayout {
+        private final Board board;
+        private final int jumpCount;
+        // jump j can be played on s when (s & pegs[j]) == pegs[j] and (s & hole[j]) == 0
+        private final long[] pegs;
+        private final long[] hole;
+        private final long notLastColumn;
+
+
+        OneWord(Board board) {
+            this.board = board;
+            this.jumpCount = board.jumpCount;
+            this.pegs = new long[jumpCount];
+            this.hole = new long[jumpCount];
+            for (int j = 0; j < jumpCount; j++) {
+                pegs[j] = (1L << board.jumpFrom[j]) | (1L << board.jumpOver[j]);
+                hole[j] = 1L << board.jumpTo[j];
+            }
+            this.notLastColumn = board.notLastColumn[0];
+        }
+
+
+        @Override
+        int nextJump(long[] s, int j) {
+            long s0 = s[0];
+            for (; j < jumpCount; j++) {
+                if ((s0 & pegs[j]) == pegs[j] && (s0 & hole[j]) == 0) {
+                    return j;
+                }
+            }
+            return -1;
+        }
+
+
+        @Override
+        int nextParent(long[] s, int j) {
+            long s0 = s[0];
+            for (; j < jumpCount; j++) {
+                if ((s0 & hole[j]) != 0 && (s0 & pegs[j]) == 0) {
+                    return j;
+                }
+            }
+            return -1;
+        }
+
+
+        @Override
+        void play(long[] src, long[] dst, int j) {
+            dst[0] = src[0] ^ pegs[j] ^ hole[j];
+        }
+
+
+        @Override
+        void canonical(long[] s, long[] key, long[] scratch) {
+            long min = s[0];
+            for (Symmetry sym : board.symmetries) {
+                long t = sym.apply(s[0]);
+                if (Long.compareUnsigned(t, min) < 0) {
+                    min = t;
+                }
+            }
+            key[0] = min;
+        }
+
+
+        @Override
+        int compactness(long[] states, int offset) {
+            long p = states[offset];
+            long below = board.X < 64 ? p >>> board.X : 0;
+            return 4 * Long.bitCount(p)
+                    - 2 * Long.bitCount(p & (p >>> 1) & notLastColumn)
+                    - 2 * Long.bitCount(p & below);
+        }
+    }
+
+
+    private static final class TwoWords extends StateLayout {
+        private final Board board;
+        private final int jumpCount;
+        // the masks of OneWord, split into the low and the high word
+        private final long[] pegs0;
+        private final long[] pegs1;
+        private final long[] hole0;
+        private final long[] hole1;
+        private final long notLast0;
+        private final long notLast1;
+
+
+        TwoWords(Board board) {
+            this.board = board;
+            this.jumpCount = board.jumpCount;
+            pegs0 = new long[jumpCount];
+            pegs1 = new long[jumpCount];
+            hole0 = new long[jumpCount];
+            hole1 = new long[jumpCount];
+            long[] pegs = new long[2];
+            long[] hole = new long[2];
+            for (int j = 0; j < jumpCount; j++) {
+                pegs[0] = pegs[1] = hole[0] = hole[1] = 0;
+                set(pegs, board.jumpFrom[j]);
+                set(pegs, board.jumpOver[j]);
+                set(hole, board.jumpTo[j]);
+                pegs0[j] = pegs[0];
+                pegs1[j] = pegs[1];
+                hole0[j] = hole[0];
+                hole1[j] = hole[1];
+            }
+            notLast0 = board.notLastColumn[0];
+            notLast1 = board.notLastColumn[1];
+        }
+
+
+        @Override
+        int nextJump(long[] s, int j) {
+            long s0 = s[0];
+            long s1 = s[1];
+            for (; j < jumpCount; j++) {
+                if ((s0 & pegs0[j]) == pegs0[j] && (s1 & pegs1[j]) == pegs1[j]
+                        && ((s0 & hole0[j]) | (s1 & hole1[j])) == 0) {
+                    return j;
+                }
+            }
+            return -1;
+        }
+
+
+        @Override
+        int nextParent(long[] s, int j) {
+            long s0 = s[0];
+            long s1 = s[1];
+            for (; j < jumpCount; j++) {
+                if (((s0 & hole0[j]) | (s1 & hole1[j])) != 0
+                        && ((s0 & pegs0[j]) | (s1 & pegs1[j])) == 0) {
+                    return j;
+                }
+            }
+            return -1;
+        }
+
+
+        @Override
+        void play(long[] src, long[] dst, int j) {
+            dst[0] = src[0] ^ pegs0[j] ^ hole0[j];
+            dst[1] = src[1] ^ pegs1[j] ^ hole1[j];
+        }
+
+
+        @Override
+        void canonical(long[] s, long[] key, long[] scratch) {
+            long min0 = s[0];
+            long min1 = s[1];
+            for (Symmetry sym : board.symmetries) {
+                sym.apply(s[0], s[1], scratch);
+                // the high word is the more significant one
+                int c = Long.compareUnsigned(scratch[1], min1);
+                if (c < 0 || (c == 0 && Long.compareUnsigned(scratch[0], min0) < 0)) {
+                    min0 = scratch[0];
+                    min1 = scratch[1];
+                }
+            }
+            key[0] = min0;
+            key[1] = min1;
+        }
+
+
+        @Override
+        int compactness(long[] states, int offset) {
+            long p0 = states[offset];
+            long p1 = states[offset + 1];
+            int x = board.X;
+
+            long right0 = (p0 >>> 1) | (p1 << 63);
+            long right1 = p1 >>> 1;
+            long below0;
+            long below1;
+            if (x < 64) {
+                below0 = (p0 >>> x) | (p1 << (64 - x));
+                below1 = p1 >>> x;
+            } else if (x < 128) {
+                below0 = p1 >>> (x - 64);
+                below1 = 0;
+            } else {
+                below0 = 0;
+                below1 = 0;
+            }
+
+            int pairs = Long.bitCount(p0 & right0 & notLast0) + Long.bitCount(p1 & right1 & notLast1)
+                    + Long.bitCount(p0 & below0) + Long.bitCount(p1 & below1);
+            return 4 * (Long.bitCount(p0) + Long.bitCount(p1)) - 2 * pairs;
+        }
+
+
+        private static void set(long[] bits, int i) {
+            bits[i >>> 6] |= 1L << i;
+        }
+    }
+
+
+    private static final class Words extends StateLayout {
+        private final Board board;
+        private final int words;
+        private final int jumpCount;
+        // word index and mask of the cells a jump starts from, jumps over and lands in
+        private final int[] fromWord;
+        private final int[] overWord;
+        private final int[] toWord;
+        private final long[] fromMask;
+        private final long[] overMask;
+        private final long[] toMask;
+
+
+        Words(Board board) {
+            this.board = board;
+            this.words = board.words;
+            this.jumpCount = board.jumpCount;
+            fromWord = new int[jumpCount];
+            overWord = new int[jumpCount];
+            toWord = new int[jumpCount];
+            fromMask = new long[jumpCount];
+            overMask = new long[jumpCount];
+            toMask = new long[jumpCount];
+            for (int j = 0; j < jumpCount; j++) {
+                fromWord[j] = board.jumpFrom[j] >>> 6;
+                overWord[j] = board.jumpOver[j] >>> 6;
+                toWord[j] = board.jumpTo[j] >>> 6;
+                fromMask[j] = 1L << board.jumpFrom[j];
+                overMask[j] = 1L << board.jumpOver[j];
+                toMask[j] = 1L << board.jumpTo[j];
+            }
+        }
+
+
+        @Override
+        int nextJump(long[] s, int j) {
+            for (; j < jumpCount; j++) {
+                if ((s[fromWord[j]] & fromMask[j]) != 0 && (s[overWord[j]] & overMask[j]) != 0
+                        && (s[toWord[j]] & toMask[j]) == 0) {
+                    return j;
+                }
+            }
+            return -1;
+        }
+
+
+        @Override
+        int nextParent(long[] s, int j) {
+            for (; j < jumpCount; j++) {
+                if ((s[toWord[j]] & toMask[j]) != 0 && (s[overWord[j]] & overMask[j]) == 0
+                        && (s[fromWord[j]] & fromMask[j]) == 0) {
+                    return j;
+                }
+            }
+            return -1;
+        }
+
+
+        @Override
+        void play(long[] src, long[] dst, int j) {
+            if (src != dst) {
+                System.arraycopy(src, 0, dst, 0, words);
+            }
+            dst[fromWord[j]] ^= fromMask[j];
+            dst[overWord[j]] ^= overMask[j];
+            dst[toWord[j]] ^= toMask[j];
+        }
+
+
+        @Override
+        void canonical(long[] s, long[] key, long[] scratch) {
+            System.arraycopy(s, 0, key, 0, words);
+            for (Symmetry sym : board.symmetries) {
+                sym.apply(s, scratch);
+                if (Position.compareKeys(scratch, key) < 0) {
+                    System.arraycopy(scratch, 0, key, 0, words);
+                }
+            }
+        }
+
+
+        @Override
+        int compactness(long[] states, int offset) {
+            int pegs = 0;
+            int pairs = 0;
+
+            for (int w = 0; w < words; w++) {
+                long p = states[offset + w];
+                pegs += Long.bitCount(p);
+                pairs += Long.bitCount(p & Bitboards.down(states, offset, words, w, 1) & board.notLastColumn[w]);
+                pairs += Long.bitCount(p & Bitboards.down(states, offset, words, w, board.X));
+            }
+
+            return 4 * pegs - 2 * pairs;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package solver;
+
+/**
+ * StateMap is the map counterpart of StateSet: an open-addressing hash map
+ * from fixed-width primitive keys to long values. Keys are stored back to back
+ * in one long[] table and values in a parallel long[], so entries cost no
+ * objects at all.
+ */
+final class StateMap {
+    private final int width;
+    private final float loadFactor;
+
+    private long[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+    private int threshold;
+
+
+    StateMap(int width, int expectedSize, float loadFactor) {
+        if (width < 1) {
+            throw new IllegalArgumentException("key width must be at least 1");
+        }
+
+        if (!(loadFactor > 0f && loadFactor < 1f)) {
+            throw new IllegalArgumentException("load factor must be between 0 and 1");
+        }
+
+        this.width = width;
+        this.loadFactor = loadFactor;
+
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / (double) loadFactor) + 1;
+        int capacity = 16;
+        while (capacity < needed && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+
+    int size() {
+        return size;
+    }
+
+
+    /**
+     * @return number of slots in the table. Together with {@link #occupied(int)},
+     * {@link #key(int, long[])} and {@link #value(int)} this visits every entry.
+     */
+    int slots() {
+        return used.length;
+    }
+
+
+    boolean occupied(int slot) {
+        return used[slot];
+    }
+
+
+    /**
+     * Copies the key held in an occupied slot into <code>key</code>.
+     */
+    void key(int slot, long[] key) {
+        System.arraycopy(keys, slot * width, key, 0, width);
+    }
+
+
+    long value(int slot) {
+        return values[slot];
+    }
+
+
+    /**
+     * @return the value stored under the key, or <code>missing</code> if there is none.
+     */
+    long get(long[] key, long missing) {
+        int slot = find(key);
+        return used[slot] ? values[slot] : missing;
+    }
+
+
+    void put(long[] key, long value) {
+        int slot = find(key);
+        if (!used[slot]) {
+            slot = insert(slot, key);
+        }
+        values[slot] = value;
+    }
+
+
+    /**
+     * Adds <code>delta</code> to the value stored under the key, a missing key
+     * counting as 0.
+     *
+     * @return the new value.
+     */
+    long addTo(long[] key, long delta) {
+        int slot = find(key);
+        if (!used[slot]) {
+            slot = insert(slot, key);
+        }
+        values[slot] += delta;
+        return values[slot];
+    }
+
+
+    // slot holding the key, or the empty slot where it would go
+    private int find(long[] key) {
+        int slot = (int) StateSet.hash(key, 0, width) & mask;
+        while (used[slot] && !matches(slot, key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+
+    private boolean matches(int slot, long[] key) {
+        int base = slot * width;
+        for (int w = 0; w < width; w++) {
+            if (keys[base + w] != key[w]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    // stores the key with value 0 in an empty slot; returns the slot it ends up
+    // in, which differs from the given one when the table had to grow
+    private int insert(int slot, long[] key) {
+        System.arraycopy(key, 0, keys, slot * width, width);
+        used[slot] = true;
+        values[slot] = 0;
+        if (++size > threshold) {
+            rehash();
+            return find(key);
+        }
+        return slot;
+    }
+
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(2L * (mask + 1));
+
+        long[] key = new long[width];
+        for (int s = 0; s < oldUsed.length; s++) {
+            if (oldUsed[s]) {
+                System.arraycopy(oldKeys, s * width, key, 0, width);
+                int slot = find(key);
+                System.arraycopy(key, 0, keys, slot * width, width);
+                used[slot] = true;
+                values[slot] = oldValues[s];
+            }
+        }
+    }
+
+
+    // a long, like the capacity of StateSet, so that doubling the largest table
+    // is rejected rather than wrapped to a negative size
+    private void allocate(long capacity) {
+        if (capacity * width > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("state map cannot grow beyond " + size + " keys");
+        }
+        keys = new long[(int) capacity * width];
+        values = new long[(int) capacity];
+        used = new boolean[(int) capacity];
+        mask = (int) capacity - 1;
+        threshold = (int) (capacity * loadFactor);
+    }
+}
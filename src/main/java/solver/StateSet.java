@@ -0,0 +1,265 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * StateSet is an open-addressing hash set of fixed-width primitive keys.
+ * Each key is <code>width</code> longs wide, which is enough to hold a
+ * Position's bitboard or its canonical form, so no boxing or String
+ * building is needed to deduplicate positions.
+ * <p>
+ * Keys live back to back in a single long[] table and are probed linearly.
+ * The table capacity is always a power of two and is doubled whenever the
+ * number of keys exceeds <code>capacity * loadFactor</code>.
+ */
+final class StateSet {
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    private final int width;
+    private final float loadFactor;
+
+    private long[] table;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    // the all-zero key doubles as the empty slot marker, so it is tracked apart
+    private boolean containsZero;
+
+
+    StateSet(int width) {
+        this(width, 16, DEFAULT_LOAD_FACTOR);
+    }
+
+
+    /**
+     * @param width        number of longs in each key.
+     * @param expectedSize number of keys the set should hold without resizing.
+     * @param loadFactor   maximum fill ratio of the table, between 0 and 1 exclusive.
+     */
+    StateSet(int width, int expectedSize, float loadFactor) {
+        if (width < 1) {
+            throw new IllegalArgumentException("key width must be at least 1");
+        }
+
+        if (!(loadFactor > 0f && loadFactor < 1f)) {
+            throw new IllegalArgumentException("load factor must be between 0 and 1");
+        }
+
+        this.width = width;
+        this.loadFactor = loadFactor;
+        allocate(capacityFor(Math.max(expectedSize, 1), loadFactor));
+    }
+
+
+    int size() {
+        return size;
+    }
+
+
+    int width() {
+        return width;
+    }
+
+
+    void clear() {
+        Arrays.fill(table, 0L);
+        size = 0;
+        containsZero = false;
+    }
+
+
+    boolean add(long key) {
+        if (width != 1) {
+            throw new IllegalStateException("single-word key used with a set of width " + width);
+        }
+
+        if (key == 0L) {
+            return addZero();
+        }
+
+        int slot = (int) mix(key) & mask;
+        while (true) {
+            long k = table[slot];
+            if (k == 0L) {
+                table[slot] = key;
+                grow();
+                return true;
+            }
+            if (k == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+
+    /**
+     * Adds the key held in the first <code>width</code> longs of the array.
+     *
+     * @return true if the key was not in the set before.
+     */
+    boolean add(long[] key) {
+        if (width == 1) {
+            return add(key[0]);
+        }
+
+        if (isZero(key)) {
+            return addZero();
+        }
+
+        int slot = (int) hash(key) & mask;
+        while (true) {
+            int base = slot * width;
+            if (isEmpty(base)) {
+                System.arraycopy(key, 0, table, base, width);
+                grow();
+                return true;
+            }
+            if (matches(base, key)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+
+    boolean contains(long[] key) {
+        if (isZero(key)) {
+            return containsZero;
+        }
+
+        int slot = (int) hash(key) & mask;
+        while (true) {
+            int base = slot * width;
+            if (isEmpty(base)) {
+                return false;
+            }
+            if (matches(base, key)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+
+    private boolean addZero() {
+        if (containsZero) {
+            return false;
+        }
+        containsZero = true;
+        size++;
+        return true;
+    }
+
+
+    private boolean isZero(long[] key) {
+        for (int w = 0; w < width; w++) {
+            if (key[w] != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private boolean isEmpty(int base) {
+        for (int w = 0; w < width; w++) {
+            if (table[base + w] != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private boolean matches(int base, long[] key) {
+        for (int w = 0; w < width; w++) {
+            if (table[base + w] != key[w]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private long hash(long[] key) {
+        return hash(key, 0, width);
+    }
+
+
+    /**
+     * Hash of the key of the given width stored at <code>key[offset]</code>.
+     * This is the hash the set itself uses to place keys.
+     */
+    static long hash(long[] key, int offset, int width) {
+        long h = 0;
+        for (int w = 0; w < width; w++) {
+            h = mix(h ^ key[offset + w]);
+        }
+        return h;
+    }
+
+
+    // finalizer of MurmurHash3, spreads the peg bits over the whole word
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+
+    private void grow() {
+        if (++size <= threshold) {
+            return;
+        }
+
+        long[] old = table;
+        allocate(2L * (mask + 1));
+        long[] key = new long[width];
+        for (int base = 0; base < old.length; base += width) {
+            boolean empty = true;
+            for (int w = 0; w < width; w++) {
+                key[w] = old[base + w];
+                empty &= key[w] == 0L;
+            }
+            if (!empty) {
+                reinsert(key);
+            }
+        }
+    }
+
+
+    private void reinsert(long[] key) {
+        int slot = (int) hash(key) & mask;
+        while (!isEmpty(slot * width)) {
+            slot = (slot + 1) & mask;
+        }
+        System.arraycopy(key, 0, table, slot * width, width);
+    }
+
+
+    // the capacity is a long so that doubling the largest table is caught here
+    // rather than wrapping to a negative array size
+    private void allocate(long capacity) {
+        if (capacity * width > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("state set cannot grow beyond " + size + " keys");
+        }
+        table = new long[(int) capacity * width];
+        mask = (int) capacity - 1;
+        threshold = (int) (capacity * loadFactor);
+    }
+
+
+    private static int capacityFor(int expectedSize, float loadFactor) {
+        long needed = (long) Math.ceil(expectedSize / (double) loadFactor) + 1;
+        int capacity = 16;
+        while (capacity < needed && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
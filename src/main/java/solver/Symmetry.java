@@ -0,0 +1,177 @@
+package solver;
+
+/**
+ * Symmetry is one reflection or rotation that maps a board onto itself,
+ * precomputed as a permutation of its cells.
+ * <p>
+ * To transform whole bitboards quickly the permutation is also unrolled into
+ * lookup tables: for every byte of the source bitboard and every value of that
+ * byte, the table holds the bits it turns into. A bitboard is then transformed
+ * with one lookup and one OR per non-empty byte, without allocating. On boards
+ * too large for the tables to be worth their memory, bits are moved one by one.
+ */
+final class Symmetry {
+    // largest table, in longs, that a single symmetry may use (1 MB)
+    private static final int MAX_TABLE_LONGS = 1 << 17;
+
+    final String name;
+    private final int[] map;
+    private final int words;
+    private final long[] table;
+
+
+    /**
+     * @param name descriptive name of the transform.
+     * @param map  map[i] is the cell that the content of cell i is carried to.
+     * @param words number of longs in a bitboard of the board.
+     */
+    Symmetry(String name, int[] map, int words) {
+        this.name = name;
+        this.map = map;
+        this.words = words;
+
+        int bytes = (map.length + 7) >>> 3;
+        if ((long) bytes * 256 * words <= MAX_TABLE_LONGS) {
+            table = new long[bytes * 256 * words];
+            for (int b = 0; b < bytes; b++) {
+                for (int v = 1; v < 256; v++) {
+                    int base = (b * 256 + v) * words;
+                    for (int bit = 0; bit < 8; bit++) {
+                        int i = b * 8 + bit;
+                        if ((v & (1 << bit)) != 0 && i < map.length) {
+                            int to = map[i];
+                            table[base + (to >>> 6)] |= 1L << to;
+                        }
+                    }
+                }
+            }
+        } else {
+            table = null;
+        }
+    }
+
+
+    /**
+     * @return the cell that the content of cell i is carried to.
+     */
+    int apply(int i) {
+        return map[i];
+    }
+
+
+    /**
+     * Transforms a single-word bitboard.
+     */
+    long apply(long bits) {
+        if (table == null) {
+            return applyBitwise(bits);
+        }
+
+        long out = 0;
+        int b = 0;
+        while (bits != 0) {
+            int v = (int) bits & 0xff;
+            if (v != 0) {
+                out |= table[(b << 8) + v];
+            }
+            bits >>>= 8;
+            b++;
+        }
+        return out;
+    }
+
+
+    /**
+     * Transforms the bitboard <code>src</code> into <code>dst</code>, which
+     * must not be the same array.
+     */
+    void apply(long[] src, long[] dst) {
+        for (int w = 0; w < words; w++) {
+            dst[w] = 0;
+        }
+
+        if (table == null) {
+            for (int w = 0; w < words; w++) {
+                long word = src[w];
+                while (word != 0) {
+                    int to = map[(w << 6) + Long.numberOfTrailingZeros(word)];
+                    dst[to >>> 6] |= 1L << to;
+                    word &= word - 1;
+                }
+            }
+            return;
+        }
+
+        for (int w = 0; w < words; w++) {
+            long word = src[w];
+            int b = w << 3;
+            while (word != 0) {
+                int v = (int) word & 0xff;
+                if (v != 0) {
+                    int base = ((b << 8) + v) * words;
+                    for (int k = 0; k < words; k++) {
+                        dst[k] |= table[base + k];
+                    }
+                }
+                word >>>= 8;
+                b++;
+            }
+        }
+    }
+
+
+    /**
+     * Transforms a two-word bitboard, given by its low and high words, into
+     * <code>dst</code>.
+     */
+    void apply(long s0, long s1, long[] dst) {
+        long d0 = 0;
+        long d1 = 0;
+        if (table == null) {
+            for (int w = 0; w < 2; w++) {
+                for (long word = w == 0 ? s0 : s1; word != 0; word &= word - 1) {
+                    int to = map[(w << 6) + Long.numberOfTrailingZeros(word)];
+                    if (to < 64) {
+                        d0 |= 1L << to;
+                    } else {
+                        d1 |= 1L << to;
+                    }
+                }
+            }
+            dst[0] = d0;
+            dst[1] = d1;
+            return;
+        }
+
+        int b = 0;
+        for (long word = s0; word != 0; word >>>= 8, b++) {
+            int v = (int) word & 0xff;
+            if (v != 0) {
+                int base = ((b << 8) + v) << 1;
+                d0 |= table[base];
+                d1 |= table[base + 1];
+            }
+        }
+        b = 8;
+        for (long word = s1; word != 0; word >>>= 8, b++) {
+            int v = (int) word & 0xff;
+            if (v != 0) {
+                int base = ((b << 8) + v) << 1;
+                d0 |= table[base];
+                d1 |= table[base + 1];
+            }
+        }
+        dst[0] = d0;
+        dst[1] = d1;
+    }
+
+
+    private long applyBitwise(long bits) {
+        long out = 0;
+        while (bits != 0) {
+            out |= 1L << map[Long.numberOfTrailingZeros(bits)];
+            bits &= bits - 1;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,105 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TargetFilter holds what a search knows about the position it has to reach:
+ * optionally the hole the last peg must end in, and the pagoda functions used
+ * to drop positions from which that hole is out of reach. It is immutable and
+ * may be shared between threads.
+ */
+final class TargetFilter {
+    private final int target;
+    private final Pagoda[] pagodas;
+    private final long[] bounds;
+
+
+    /**
+     * @param x       column of the target hole, or -1 if any single peg will do.
+     * @param y       row of the target hole.
+     * @param pagodas pagoda functions to prune with.
+     * @param generate also prune with the pagoda functions generated for the target hole.
+     */
+    TargetFilter(Board board, int x, int y, List<Pagoda> pagodas, boolean generate) {
+        List<Pagoda> all = new ArrayList<Pagoda>(pagodas);
+        if (generate && x >= 0) {
+            all.addAll(Pagoda.forTarget(board, x, y));
+        }
+
+        this.target = x < 0 ? -1 : y * board.X + x;
+        this.pagodas = all.toArray(new Pagoda[all.size()]);
+        this.bounds = new long[this.pagodas.length];
+
+        // a target position has a single peg, so its value is the weight of the
+        // target hole, or at least the smallest weight of any hole
+        for (int k = 0; k < bounds.length; k++) {
+            if (target >= 0) {
+                bounds[k] = this.pagodas[k].weight(x, y);
+            } else {
+                bounds[k] = Long.MAX_VALUE;
+                for (int i = 0; i < board.X * board.Y; i++) {
+                    if (board.allowed(i)) {
+                        bounds[k] = Math.min(bounds[k], this.pagodas[k].weight(i % board.X, i / board.X));
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * @return false if the position class of <code>start</code> rules out every
+     * target position. Jumps never change the class of a position, so this only
+     * needs to be checked for the position a search starts from.
+     */
+    boolean reachable(Position start) {
+        Board board = start.board();
+        if (target >= 0) {
+            return start.sameClass(board.targetPosition(target % board.X, target / board.X));
+        }
+
+        for (int i = 0; i < board.X * board.Y; i++) {
+            if (board.allowed(i) && start.sameClass(board.targetPosition(i % board.X, i / board.X))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    boolean isTarget(Position p) {
+        return p.isFinal() && (target < 0 || p.occupied(target % p.board().X, target / p.board().X));
+    }
+
+
+    /**
+     * @return false if some pagoda function proves that p cannot reach the target.
+     */
+    boolean feasible(Position p) {
+        for (int k = 0; k < pagodas.length; k++) {
+            if (pagodas[k].value(p) < bounds[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * @return true unless a symmetry of the board moves the target hole, in which
+     * case positions may not be reduced by symmetry.
+     */
+    boolean symmetric(Board board) {
+        if (target < 0) {
+            return true;
+        }
+
+        for (Symmetry s : board.symmetries) {
+            if (s.apply(target) != target) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
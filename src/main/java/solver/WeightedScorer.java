@@ -0,0 +1,41 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WeightedScorer scores a position with the weighted sum of the scores that
+ * other scorers give it, for example the border length plus four times the
+ * number of isolated pegs. Without any scorer added every position scores 0.
+ */
+public final class WeightedScorer implements PositionScorer {
+    private final List<PositionScorer> scorers = new ArrayList<PositionScorer>();
+    private final List<Integer> weights = new ArrayList<Integer>();
+
+
+    /**
+     * Adds <code>weight</code> times the score of <code>scorer</code>. Scorers
+     * should not be added while a search is using this one.
+     */
+    public void add(int weight, PositionScorer scorer) {
+        scorers.add(scorer);
+        weights.add(weight);
+    }
+
+
+    @Override
+    public void score(Board board, long[] states, int count, int[] scores) {
+        int[] part = new int[count];
+        for (int i = 0; i < count; i++) {
+            scores[i] = 0;
+        }
+
+        for (int s = 0; s < scorers.size(); s++) {
+            int weight = weights.get(s);
+            scorers.get(s).score(board, states, count, part);
+            for (int i = 0; i < count; i++) {
+                scores[i] += weight * part[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import solver.BatchSolver;
+import solver.Board;
+import solver.Boards;
+import solver.PruningSearch;
+import solver.SolutionCache;
+import solver.SolveJob;
+import solver.SolveResult;
+import org.junit.*;
+
+
+public class BatchSolverTest
+{
+  @Test
+  public void sweepMatchesSequentialSearches() throws Exception
+  {
+    Board b = Boards.english();
+    List<SolveJob> jobs = new ArrayList<SolveJob>();
+    for (int y = 0; y < b.Y; y++)
+    {
+      for (int x = 0; x < b.X; x++)
+      {
+        if (b.allowed(x, y))
+        {
+          SolveJob job = new SolveJob(b, x, y);
+          job.prune(50);
+          jobs.add(job);
+        }
+      }
+    }
+
+    BatchSolver solver = new BatchSolver(4);
+    List<Future<SolveResult>> futures = solver.submitAll(jobs);
+    solver.shutdown();
+
+    assertEquals(33, futures.size());
+    for (int i = 0; i < jobs.size(); i++)
+    {
+      SolveResult result = futures.get(i).get();
+      assertSame(jobs.get(i), result.job());
+
+      PruningSearch search = new PruningSearch(b.initialPosition(jobs.get(i).startX(), jobs.get(i).startY()));
+      search.prune(50);
+      assertEquals(search.search(), result.solutions());
+      if (result.solutions() > 0)
+      {
+        assertEquals(search.getSolution(0).toString(), result.solution().toString());
+      }
+    }
+  }
+
+
+  @Test
+  public void listenerReceivesEveryResult()
+  {
+    Board b = Boards.english();
+    List<SolveJob> jobs = new ArrayList<SolveJob>();
+    jobs.add(new SolveJob(b, 3, 3));
+    jobs.add(new SolveJob(b, 3, 2));
+    jobs.get(1).setTarget(3, 3);
+
+    final List<SolveResult> results = new ArrayList<SolveResult>();
+    BatchSolver solver = new BatchSolver(2);
+    solver.solveAll(jobs, new BatchSolver.ResultListener()
+    {
+      public void finished(SolveResult result)
+      {
+        results.add(result);
+      }
+    });
+    solver.shutdown();
+
+    assertEquals(2, results.size());
+    for (SolveResult r : results)
+    {
+      if (r.job() == jobs.get(1))
+      {
+        assertTrue(r.targetUnreachable());
+      }
+      else
+      {
+        assertTrue(r.solutions() > 0);
+      }
+    }
+  }
+
+
+  @Test
+  public void secondRunIsAnsweredFromCache() throws Exception
+  {
+    File file = File.createTempFile("solutions", ".bin");
+    file.delete();
+    SolutionCache cache = new SolutionCache(file);
+    Board b = Boards.english();
+
+    BatchSolver solver = new BatchSolver(2);
+    solver.setCache(cache);
+    SolveResult first = solver.submit(new SolveJob(b, 3, 2)).get();
+    SolveResult second = solver.submit(new SolveJob(b, 2, 3)).get();
+    solver.shutdown();
+    cache.close();
+    file.delete();
+
+    assertFalse(first.fromCache());
+    assertTrue(second.fromCache());
+    assertEquals(first.solution().size(), second.solution().size());
+    assertEquals(1, second.solutions());
+    assertNotNull(second.finalPosition());
+  }
+
+
+  @Test
+  public void cachedResultKeepsTheUnreachableVerdict() throws Exception
+  {
+    File file = File.createTempFile("solutions", ".bin");
+    file.delete();
+    Board b = Boards.english();
+    SolveJob job = new SolveJob(b, 3, 2);
+    job.setTarget(3, 3);
+
+    SolutionCache cache = new SolutionCache(file);
+    BatchSolver solver = new BatchSolver(1);
+    solver.setCache(cache);
+    SolveResult cold = solver.submit(job).get();
+    solver.shutdown();
+    cache.close();
+
+    SolutionCache reopened = new SolutionCache(file);
+    solver = new BatchSolver(1);
+    solver.setCache(reopened);
+    SolveResult warm = solver.submit(job).get();
+    solver.shutdown();
+    reopened.close();
+    file.delete();
+
+    assertFalse(cold.fromCache());
+    assertTrue(cold.targetUnreachable());
+    assertTrue(warm.fromCache());
+    assertTrue(warm.targetUnreachable());
+    assertEquals(0, warm.solutions());
+  }
+}
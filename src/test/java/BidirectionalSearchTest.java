@@ -0,0 +1,66 @@
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import solver.BidirectionalSearch;
+import solver.Board;
+import solver.Boards;
+import solver.Move;
+import solver.Position;
+import org.junit.*;
+
+
+public class BidirectionalSearchTest
+{
+  @Test
+  public void englishBoardMeetsInTheMiddle()
+  {
+    Board b = Boards.english();
+    Position p = b.initialPosition(3, 3);
+    BidirectionalSearch search = new BidirectionalSearch(p, b.targetPosition(3, 3));
+    search.setUseSymmetry(true);
+    search.prune(2000);
+
+    assertTrue(search.search());
+
+    List<Move> solution = search.getSolution();
+    assertEquals(31, solution.size());
+
+    Position replay = p.copy();
+    for (Move m : solution)
+    {
+      replay.play(m);
+    }
+    assertTrue(replay.isComplement(p));
+  }
+
+
+  @Test
+  public void exactSearchOnSmallBoard()
+  {
+    Board b = Boards.rectangle(3, 5);
+    Position p = b.initialPosition(0, 2);
+    BidirectionalSearch search = new BidirectionalSearch(p, b.targetPosition(0, 2));
+
+    assertTrue(search.search());
+
+    Position replay = p.copy();
+    for (Move m : search.getSolution())
+    {
+      replay.play(m);
+    }
+    assertTrue(replay.isComplement(p));
+  }
+
+
+  @Test
+  public void unsolvableProblemIsProven()
+  {
+    Board b = Boards.rectangle(3, 4);
+    BidirectionalSearch search = new BidirectionalSearch(b.initialPosition(1, 0), b.targetPosition(1, 0));
+
+    assertFalse(search.search());
+    assertNull(search.getSolution());
+  }
+}
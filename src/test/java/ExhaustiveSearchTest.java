@@ -0,0 +1,76 @@
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import solver.Board;
+import solver.Boards;
+import solver.ExhaustiveSearch;
+import solver.Move;
+import solver.Position;
+import org.junit.*;
+
+
+public class ExhaustiveSearchTest
+{
+  @Test
+  public void englishBoardIsSolvableToCenter()
+  {
+    Board b = Boards.english();
+    Position p = b.initialPosition(3, 3);
+    ExhaustiveSearch search = new ExhaustiveSearch(p);
+    search.setTarget(3, 3);
+    search.setUseSymmetry(true);
+
+    assertTrue(search.isSolvable());
+
+    Position replay = p.copy();
+    for (Move m : search.getSolution())
+    {
+      replay.play(m);
+    }
+    assertTrue(replay.isComplement(p));
+  }
+
+
+  @Test
+  public void unsolvableStartIsProven()
+  {
+    ExhaustiveSearch search = new ExhaustiveSearch(Boards.rectangle(3, 4).initialPosition(1, 0));
+
+    assertFalse(search.isSolvable());
+    assertNull(search.getSolution());
+  }
+
+
+  @Test
+  public void positionClassRulesOutEuropeanCenter()
+  {
+    Board b = Boards.european();
+    ExhaustiveSearch search = new ExhaustiveSearch(b.initialPosition(3, 3));
+    search.setTarget(3, 3);
+
+    assertFalse(search.isSolvable());
+    assertEquals(0, search.nodes());
+  }
+
+
+  @Test
+  public void enumerationStopsWhenAsked()
+  {
+    ExhaustiveSearch search = new ExhaustiveSearch(Boards.english().initialPosition(3, 3));
+    long n = search.enumerate(new ExhaustiveSearch.SolutionVisitor()
+    {
+      private int seen = 0;
+
+      @Override
+      public boolean visit(List<Move> solution)
+      {
+        assertEquals(31, solution.size());
+        return ++seen < 10;
+      }
+    });
+
+    assertEquals(10, n);
+  }
+}
@@ -0,0 +1,160 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.List;
+
+import solver.Board;
+import solver.Boards;
+import solver.ExhaustiveSearch;
+import solver.Geometry;
+import solver.Move;
+import solver.Position;
+import solver.PruningSearch;
+import solver.SolutionCache;
+import org.junit.*;
+
+
+public class GeometryTest
+{
+  private static int[] europeanBoard = new int[]{
+      0, 0, 1, 1, 1, 0, 0,
+      0, 1, 1, 1, 1, 1, 0,
+      1, 1, 1, 1, 1, 1, 1,
+      1, 1, 1, 1, 1, 1, 1,
+      1, 1, 1, 1, 1, 1, 1,
+      0, 1, 1, 1, 1, 1, 0,
+      0, 0, 1, 1, 1, 0, 0
+  };
+
+
+  @Test
+  public void triangularBoardsJumpInSixDirections()
+  {
+    assertEquals(36, Boards.triangular15().jumpCount());
+    assertEquals(60, Boards.triangular(6).jumpCount());
+
+    // along the third side of the triangle
+    Board b = Boards.triangular15();
+    assertTrue(b.jumpIndex(0, 0, 2, 2) >= 0);
+    assertTrue(b.jumpIndex(2, 4, 0, 4) >= 0);
+    assertEquals(-1, b.jumpIndex(0, 2, 2, 0));
+  }
+
+
+  @Test
+  public void solveTriangle15ToItsStartingCorner()
+  {
+    Board b = Boards.triangular15();
+    Position p = b.initialPosition(0, 0);
+    ExhaustiveSearch search = new ExhaustiveSearch(p);
+    search.setTarget(0, 0);
+    search.setUseSymmetry(true);
+
+    assertTrue(search.isSolvable());
+
+    List<Move> solution = search.getSolution();
+    assertEquals(13, solution.size());
+    Position replay = p.copy();
+    for (Move m : solution)
+    {
+      replay.play(m);
+    }
+    assertTrue(replay.isComplement(p));
+  }
+
+
+  @Test
+  public void triangleCornersShareACacheEntry() throws Exception
+  {
+    File file = File.createTempFile("solutions", ".bin");
+    file.delete();
+    Board b = Boards.triangular15();
+    SolutionCache cache = new SolutionCache(file);
+
+    ExhaustiveSearch search = new ExhaustiveSearch(b.initialPosition(0, 0));
+    assertTrue(search.isSolvable());
+    cache.store(b, 0, 0, -1, -1, "", search.getSolution());
+
+    // the corner at the end of the bottom row is a rotation of the top one
+    List<Move> rotated = cache.lookup(b, 4, 4, -1, -1, "");
+    assertNotNull(rotated);
+    assertEquals(13, rotated.size());
+    Position p = b.initialPosition(4, 4);
+    for (Move m : rotated)
+    {
+      p.play(m);
+    }
+
+    cache.close();
+    file.delete();
+  }
+
+
+  @Test
+  public void diagonalJumpsSolveEuropeanCenter()
+  {
+    // without diagonal jumps the centre start cannot be solved at all
+    ExhaustiveSearch orthogonal = new ExhaustiveSearch(new Board(7, 7, europeanBoard).initialPosition(3, 3));
+    orthogonal.setTarget(3, 3);
+    assertFalse(orthogonal.isSolvable());
+
+    Board b = new Board(7, 7, europeanBoard, Geometry.diagonal());
+    Position p = b.initialPosition(3, 3);
+    PruningSearch search = new PruningSearch(p);
+    search.prune(200);
+    search.setUseSymmetry(true);
+    search.setTarget(3, 3);
+
+    assertTrue(search.search() > 0);
+
+    boolean diagonal = false;
+    Position replay = p.copy();
+    for (Move m : search.getSolution(0))
+    {
+      diagonal |= m.x1 != m.x2 && m.y1 != m.y2;
+      replay.play(m);
+    }
+    assertTrue(diagonal);
+    assertTrue(replay.isComplement(p));
+  }
+
+
+  @Test
+  public void linesGiveTheJumpsAlongThem()
+  {
+    int[] row = new int[]{1, 1, 1, 1, 1};
+    Board b = new Board(5, 1, row, Geometry.lines(new int[]{0, 0, 1, 0, 2, 0, 3, 0, 4, 0}));
+    assertEquals(new Board(5, 1, row).jumpCount(), b.jumpCount());
+
+    // a line that turns a corner
+    int[] square = new int[]{1, 1, 1, 1};
+    Board bent = new Board(2, 2, square, Geometry.lines(new int[]{0, 0, 1, 0, 1, 1}));
+    assertEquals(2, bent.jumpCount());
+    assertTrue(bent.jumpIndex(0, 0, 1, 1) >= 0);
+    assertTrue(bent.jumpIndex(1, 1, 0, 0) >= 0);
+  }
+
+
+  @Test
+  public void jumpsOffTheGridAreNotFound()
+  {
+    // a line from the end of the first row to the start of the second:
+    // (2, 0) and (0, 1) are cells 2 and 3 of the grid
+    Board b = new Board(3, 2, new int[]{1, 1, 1, 1, 1, 1},
+        Geometry.lines(new int[]{1, 0, 2, 0, 0, 1}));
+    assertTrue(b.jumpIndex(1, 0, 0, 1) >= 0);
+
+    // (3, 0) would also be cell 3, were it not off the grid
+    assertEquals(-1, b.jumpIndex(1, 0, 3, 0));
+    assertEquals(-1, b.jumpIndex(0, 1, -1, 1));
+    assertEquals(-1, Boards.english().jumpIndex(3, 1, 3, -1));
+  }
+
+
+  @Test(expected = IllegalArgumentException.class)
+  public void linesMayNotGiveTwoJumpsBetweenTheSameHoles()
+  {
+    new Board(2, 2, new int[]{1, 1, 1, 1},
+        Geometry.lines(new int[]{0, 0, 1, 0, 1, 1}, new int[]{0, 0, 0, 1, 1, 1}));
+  }
+}
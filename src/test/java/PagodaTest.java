@@ -0,0 +1,67 @@
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import solver.Board;
+import solver.Boards;
+import solver.ExhaustiveSearch;
+import solver.Move;
+import solver.Pagoda;
+import solver.Position;
+import org.junit.*;
+
+
+public class PagodaTest
+{
+  @Test
+  public void generatedPagodasNeverIncrease()
+  {
+    Board b = Boards.english();
+    Position p = b.initialPosition(3, 3);
+    ExhaustiveSearch search = new ExhaustiveSearch(p);
+    search.setTarget(3, 3);
+    assertTrue(search.isSolvable());
+
+    List<Pagoda> pagodas = Pagoda.forTarget(b, 3, 3);
+    assertEquals(3, pagodas.size());
+
+    for (Pagoda pagoda : pagodas)
+    {
+      Position replay = p.copy();
+      long value = pagoda.value(replay);
+      for (Move m : search.getSolution())
+      {
+        replay.play(m);
+        assertTrue(pagoda.value(replay) <= value);
+        value = pagoda.value(replay);
+      }
+      assertEquals(pagoda.weight(3, 3), value);
+    }
+  }
+
+
+  @Test(expected = IllegalArgumentException.class)
+  public void increasingWeightsAreRejected()
+  {
+    Board b = Boards.rectangle(3, 1);
+    new Pagoda(b, new long[] { 1, 1, 3 });
+  }
+
+
+  @Test
+  public void pagodasShrinkExhaustiveSearch()
+  {
+    Board b = Boards.rectangle(4, 4);
+
+    ExhaustiveSearch plain = new ExhaustiveSearch(b.initialPosition(0, 1));
+    plain.setTarget(3, 2);
+    plain.setUsePagodas(false);
+
+    ExhaustiveSearch pruned = new ExhaustiveSearch(b.initialPosition(0, 1));
+    pruned.setTarget(3, 2);
+
+    assertTrue(plain.isSolvable());
+    assertTrue(pruned.isSolvable());
+    assertTrue(pruned.nodes() < plain.nodes());
+  }
+}
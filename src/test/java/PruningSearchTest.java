@@ -1,8 +1,22 @@
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.nio.file.Files;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
 import solver.Board;
+import solver.Boards;
+import solver.GenerationStats;
+import solver.Move;
 import solver.Position;
 import solver.PruningSearch;
+import solver.SearchListener;
+import solver.SearchSummary;
 import org.junit.*;
 
 
@@ -18,6 +32,18 @@ public class PruningSearchTest
       0, 0, 1, 1, 1, 0, 0
   };
 
+  private static int[] wieglebBoard = new int[]{
+      0, 0, 0, 1, 1, 1, 0, 0, 0,
+      0, 0, 0, 1, 1, 1, 0, 0, 0,
+      0, 0, 0, 1, 1, 1, 0, 0, 0,
+      1, 1, 1, 1, 1, 1, 1, 1, 1,
+      1, 1, 1, 1, 1, 1, 1, 1, 1,
+      1, 1, 1, 1, 1, 1, 1, 1, 1,
+      0, 0, 0, 1, 1, 1, 0, 0, 0,
+      0, 0, 0, 1, 1, 1, 0, 0, 0,
+      0, 0, 0, 1, 1, 1, 0, 0, 0
+  };
+
 
   @Test
   public void solveEnglishBoard()
@@ -34,6 +60,409 @@ public class PruningSearchTest
     }
   }
 
+  @Test
+  public void parallelSearchFindsSameSolution()
+  {
+    Board b = new Board(7, 7, englishBoard);
+
+    PruningSearch sequential = new PruningSearch(b.initialPosition(3, 3));
+    sequential.prune(121);
+    int n = sequential.search();
+
+    PruningSearch parallel = new PruningSearch(b.initialPosition(3, 3));
+    parallel.prune(121);
+    parallel.setParallelism(4);
+
+    assertEquals(n, parallel.search());
+    assertEquals(sequential.getSolution(0).toString(), parallel.getSolution(0).toString());
+  }
+
+
+  @Test
+  public void solutionReplaysOnJumpTable()
+  {
+    Board b = new Board(7, 7, englishBoard);
+    assertEquals(76, b.jumpCount());
+
+    Position p = b.initialPosition(3, 3);
+    PruningSearch pruningSearch = new PruningSearch(p);
+    pruningSearch.prune(121);
+    pruningSearch.search();
+
+    Position replay = p.copy();
+    for (Move m : pruningSearch.getSolution(0))
+    {
+      replay.play(m);
+    }
+    assertTrue(replay.equals(pruningSearch.getFinalPosition(0)));
+  }
+
+
+  @Test
+  public void hashKeysOnBoardLargerThan64Cells()
+  {
+    Board b = new Board(9, 9, wieglebBoard);
+    PruningSearch pruningSearch = new PruningSearch(b.initialPosition(4, 4));
+    pruningSearch.prune(200);
+    pruningSearch.setHashKeys(64);
+    pruningSearch.setVerifyHashKeys(true);
+
+    assertTrue(pruningSearch.search() > 0);
+    assertEquals(43, pruningSearch.getSolution(0).size());
+  }
+
+
+  @Test
+  public void solveBoardLargerThan128Cells()
+  {
+    // a cross with arms three holes wide on a 13x13 grid, which takes three longs
+    int[] cross = new int[13 * 13];
+    for (int i = 0; i < cross.length; i++)
+    {
+      cross[i] = Math.abs(i % 13 - 6) <= 1 || Math.abs(i / 13 - 6) <= 1 ? 1 : 0;
+    }
+    Board b = new Board(13, 13, cross);
+    Position p = b.initialPosition(6, 6);
+    PruningSearch pruningSearch = new PruningSearch(p);
+    pruningSearch.prune(50);
+    pruningSearch.setUseSymmetry(true);
+
+    assertTrue(pruningSearch.search() > 0);
+    List<Move> solution = pruningSearch.getSolution(0);
+    assertEquals(67, solution.size());
+
+    Position replay = p.copy();
+    for (Move m : solution)
+    {
+      replay.play(m);
+    }
+    assertTrue(replay.equals(pruningSearch.getFinalPosition(0)));
+  }
+
+
+  @Test
+  public void searchingAgainGivesTheSameSolutions()
+  {
+    Board b = new Board(9, 9, wieglebBoard);
+    PruningSearch pruningSearch = new PruningSearch(b.initialPosition(4, 4));
+    pruningSearch.prune(200);
+    pruningSearch.setHashKeys(64);
+    pruningSearch.setVerifyHashKeys(true);
+
+    int n = pruningSearch.search();
+    assertTrue(n > 0);
+    String first = pruningSearch.getSolution(0).toString();
+
+    // the second search runs without verification, and so without the exact keys of the first
+    pruningSearch.setVerifyHashKeys(false);
+    assertEquals(n, pruningSearch.search());
+    assertEquals(first, pruningSearch.getSolution(0).toString());
+    assertNull(pruningSearch.getSolution(n));
+  }
+
+
+  @Test
+  public void memoryBudgetStopsExhaustiveSearch()
+  {
+    Board b = new Board(7, 7, englishBoard);
+    PruningSearch pruningSearch = new PruningSearch(b.initialPosition(3, 3));
+    pruningSearch.prune(0);
+    pruningSearch.setMemoryBudget(100000, PruningSearch.BudgetPolicy.STOP);
+
+    assertEquals(0, pruningSearch.search());
+    assertTrue(pruningSearch.budgetExceeded());
+  }
+
+
+  @Test
+  public void memoryBudgetPrunesExhaustiveSearch()
+  {
+    Board b = new Board(7, 7, englishBoard);
+    PruningSearch pruningSearch = new PruningSearch(b.initialPosition(3, 3));
+    pruningSearch.prune(0);
+    pruningSearch.setMemoryBudget(200000, PruningSearch.BudgetPolicy.PRUNE);
+
+    assertTrue(pruningSearch.frontierLimit() > 0);
+    assertTrue(pruningSearch.search() > 0);
+    assertFalse(pruningSearch.budgetExceeded());
+  }
+
+
+  @Test
+  public void targetHoleIsReached()
+  {
+    Board b = new Board(7, 7, englishBoard);
+    Position p = b.initialPosition(3, 3);
+    PruningSearch pruningSearch = new PruningSearch(p);
+    pruningSearch.prune(200);
+    pruningSearch.setTarget(3, 3);
+
+    assertTrue(pruningSearch.search() > 0);
+    assertTrue(pruningSearch.getFinalPosition(0).occupied(3, 3));
+  }
+
+
+  @Test
+  public void impossibleTargetIsRejectedUpFront()
+  {
+    Board b = new Board(7, 7, englishBoard);
+    PruningSearch pruningSearch = new PruningSearch(b.initialPosition(3, 3));
+    pruningSearch.prune(0);
+    pruningSearch.setTarget(3, 2);
+
+    assertEquals(0, pruningSearch.search());
+    assertTrue(pruningSearch.targetUnreachable());
+  }
+
+
+  @Test
+  public void diskFrontierFindsSameSolutions() throws Exception
+  {
+    Board b = Boards.rectangle(4, 4);
+    PruningSearch inMemory = new PruningSearch(b.initialPosition(0, 1));
+    inMemory.prune(0);
+    int n = inMemory.search();
+
+    File dir = Files.createTempDirectory("frontier-test").toFile();
+    PruningSearch onDisk = new PruningSearch(b.initialPosition(0, 1));
+    onDisk.prune(0);
+    onDisk.setFrontierDirectory(dir);
+    onDisk.setMemoryBudget(20000, PruningSearch.BudgetPolicy.STOP);
+
+    assertTrue(n > 0);
+    assertEquals(n, onDisk.search());
+    for (int i = 0; i < n; i++)
+    {
+      assertEquals(inMemory.getSolution(i).toString(), onDisk.getSolution(i).toString());
+    }
+    assertEquals(inMemory.summary().children(), onDisk.summary().children());
+    assertEquals(inMemory.summary().duplicates(), onDisk.summary().duplicates());
+    assertEquals(0, dir.list().length);
+    dir.delete();
+  }
+
+
+  @Test
+  public void listenerSeesEveryGeneration()
+  {
+    Board b = new Board(7, 7, englishBoard);
+    PruningSearch pruningSearch = new PruningSearch(b.initialPosition(3, 3));
+    pruningSearch.prune(121);
+    final List<GenerationStats> generations = new ArrayList<GenerationStats>();
+    pruningSearch.addListener(new SearchListener() {
+      @Override
+      public void generationExpanded(GenerationStats stats)
+      {
+        generations.add(stats);
+      }
+    });
+
+    int n = pruningSearch.search();
+    assertTrue(n > 0);
+    assertEquals(31, generations.size());
+
+    long children = 0;
+    for (int i = 0; i < generations.size(); i++)
+    {
+      GenerationStats g = generations.get(i);
+      assertEquals(i + 1, g.generation());
+      assertEquals(31 - i, g.pegs());
+      assertEquals(g.children(), g.infeasible() + g.duplicates() + g.pruned() + g.frontier());
+      assertTrue(g.frontier() <= 121);
+      children += g.children();
+    }
+    assertEquals(4, generations.get(0).children());
+    assertEquals(0, generations.get(0).duplicates());
+
+    SearchSummary summary = pruningSearch.summary();
+    assertEquals(31, summary.generations());
+    assertEquals(children, summary.children());
+    assertEquals(n, summary.solutions());
+  }
+
+
+  @Test
+  public void parallelSearchReportsSameFrontiers()
+  {
+    Board b = Boards.rectangle(4, 4);
+    PruningSearch sequential = new PruningSearch(b.initialPosition(0, 1));
+    sequential.prune(0);
+    sequential.search();
+
+    PruningSearch parallel = new PruningSearch(b.initialPosition(0, 1));
+    parallel.prune(0);
+    parallel.setParallelism(4);
+    parallel.search();
+
+    SearchSummary s = sequential.summary();
+    SearchSummary p = parallel.summary();
+    assertEquals(s.generations(), p.generations());
+    assertEquals(s.children(), p.children());
+    assertEquals(s.duplicates(), p.duplicates());
+    assertEquals(s.maxFrontier(), p.maxFrontier());
+    assertEquals(0, s.pruned());
+  }
+
+
+  @Test
+  public void backgroundSearchFindsSolution() throws Exception
+  {
+    Board b = new Board(7, 7, englishBoard);
+    PruningSearch pruningSearch = new PruningSearch(b.initialPosition(3, 3));
+    pruningSearch.prune(121);
+
+    Future<Integer> future = pruningSearch.searchInBackground();
+    assertTrue(future.get() > 0);
+    assertNotNull(pruningSearch.getSolution(0));
+    assertFalse(pruningSearch.cancelled());
+  }
+
+
+  @Test
+  public void listenerCanCancelSearch() throws Exception
+  {
+    Board b = new Board(7, 7, englishBoard);
+    final PruningSearch pruningSearch = new PruningSearch(b.initialPosition(3, 3));
+    pruningSearch.prune(0);
+    final List<GenerationStats> generations = new ArrayList<GenerationStats>();
+    pruningSearch.addListener(new SearchListener() {
+      @Override
+      public void generationExpanded(GenerationStats stats)
+      {
+        generations.add(stats);
+        if (stats.generation() == 3)
+        {
+          pruningSearch.cancel();
+        }
+      }
+    });
+
+    Future<Integer> future = pruningSearch.searchInBackground();
+    assertEquals(0, (int) future.get());
+    assertTrue(pruningSearch.cancelled());
+    assertEquals(3, generations.size());
+  }
+
+
+  @Test
+  public void cancelledFutureCompletesWhenSearchReturns() throws Exception
+  {
+    Board b = new Board(7, 7, englishBoard);
+    PruningSearch pruningSearch = new PruningSearch(b.initialPosition(3, 3));
+    pruningSearch.prune(0);
+    final CountDownLatch expanded = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    pruningSearch.addListener(new SearchListener() {
+      @Override
+      public void generationExpanded(GenerationStats stats)
+      {
+        expanded.countDown();
+        try
+        {
+          release.await();
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+
+    Future<Integer> future = pruningSearch.searchInBackground();
+    expanded.await();
+    assertTrue(future.cancel(true));
+    assertTrue(future.isCancelled());
+    // the search thread is still inside the listener
+    assertFalse(future.isDone());
+
+    release.countDown();
+    try
+    {
+      future.get();
+      fail("cancelled future returned a result");
+    }
+    catch (CancellationException e)
+    {
+      // expected
+    }
+    assertTrue(future.isDone());
+    assertTrue(pruningSearch.cancelled());
+  }
+
+
+  @Test
+  public void cancelBeforeSearchStopsNextSearch()
+  {
+    Board b = new Board(7, 7, englishBoard);
+    PruningSearch pruningSearch = new PruningSearch(b.initialPosition(3, 3));
+    pruningSearch.prune(121);
+
+    pruningSearch.cancel();
+    assertEquals(0, pruningSearch.search());
+    assertTrue(pruningSearch.cancelled());
+
+    // the pending cancel is used up by the search it stopped
+    assertTrue(pruningSearch.search() > 0);
+    assertFalse(pruningSearch.cancelled());
+  }
+
+
+  @Test
+  public void timeLimitStopsExhaustiveSearch()
+  {
+    Board b = new Board(7, 7, englishBoard);
+    PruningSearch pruningSearch = new PruningSearch(b.initialPosition(3, 3));
+    pruningSearch.prune(0);
+    pruningSearch.setTimeLimit(200);
+
+    long start = System.nanoTime();
+    assertEquals(0, pruningSearch.search());
+    assertTrue(pruningSearch.timedOut());
+    assertTrue(System.nanoTime() - start < 10000000000L);
+  }
+
+
+  @Test
+  public void escalationWidensBeamUntilSolved()
+  {
+    Board b = new Board(7, 7, englishBoard);
+    PruningSearch fixed = new PruningSearch(b.initialPosition(1, 4));
+    fixed.prune(4);
+    fixed.setTarget(1, 4);
+    assertEquals(0, fixed.search());
+
+    PruningSearch escalating = new PruningSearch(b.initialPosition(1, 4));
+    escalating.prune(4);
+    escalating.setTarget(1, 4);
+    escalating.setEscalation(1024, 2);
+    assertTrue(escalating.search() > 0);
+    assertTrue(escalating.pruningNumberUsed() > 4);
+
+    Position p = b.initialPosition(1, 4);
+    for (Move m : escalating.getSolution(0))
+    {
+      p.play(m);
+    }
+    assertTrue(p.occupied(1, 4));
+    assertEquals(31, escalating.getSolution(0).size());
+  }
+
+
+  @Test
+  public void nodeBudgetStopsSearch()
+  {
+    Board b = new Board(7, 7, englishBoard);
+    PruningSearch pruningSearch = new PruningSearch(b.initialPosition(3, 3));
+    pruningSearch.prune(0);
+    pruningSearch.setNodeBudget(1000);
+
+    assertEquals(0, pruningSearch.search());
+    assertTrue(pruningSearch.nodeBudgetExceeded());
+    assertTrue(pruningSearch.summary().children() > 1000);
+    assertTrue(pruningSearch.summary().children() < 100000);
+  }
+
+
   @Test
   public void minimalBoardSize()
   {
@@ -0,0 +1,126 @@
+import static org.junit.Assert.*;
+
+import solver.Board;
+import solver.Boards;
+import solver.Geometry;
+import solver.PositionScorer;
+import solver.PruningSearch;
+import solver.Scorers;
+import solver.WeightedScorer;
+import org.junit.*;
+
+
+public class ScorersTest
+{
+  // on a 4x4 grid: (0,0), (1,0) and (3,3); (1,1), (2,1) and (1,2); (3,0) and (0,1)
+  private static long[] states = new long[]{
+      (1L << 0) | (1L << 1) | (1L << 15),
+      (1L << 5) | (1L << 6) | (1L << 9),
+      (1L << 3) | (1L << 4)
+  };
+
+
+  @Test
+  public void builtInScoresOnSmallBoard()
+  {
+    Board b = Boards.rectangle(4, 4);
+    int[] scores = new int[3];
+
+    Scorers.isolatedPegs().score(b, states, 3, scores);
+    assertArrayEquals(new int[]{ 1, 0, 2 }, scores);
+
+    Scorers.distanceToCenter().score(b, states, 3, scores);
+    assertArrayEquals(new int[]{ 16, 6, 10 }, scores);
+
+    WeightedScorer weighted = new WeightedScorer();
+    weighted.add(2, Scorers.isolatedPegs());
+    weighted.add(1, Scorers.distanceToCenter());
+    weighted.score(b, states, 3, scores);
+    assertArrayEquals(new int[]{ 18, 6, 14 }, scores);
+  }
+
+
+  @Test
+  public void borderLengthOnNonSquareBoard()
+  {
+    Board b = Boards.rectangle(2, 4);
+    // (0,3) and (1,3) side by side on the bottom row, and (0,0) alone
+    long[] pegs = new long[]{ (1L << 6) | (1L << 7), 1L << 0 };
+    int[] scores = new int[2];
+
+    Scorers.borderLength().score(b, pegs, 2, scores);
+    assertArrayEquals(new int[]{ 6, 4 }, scores);
+  }
+
+
+  @Test
+  public void isolatedPegsAcrossWords()
+  {
+    Board b = Boards.rectangle(9, 9);
+    // (0,7) and (0,8) are cells 63 and 72, on either side of a word boundary
+    long[] two = new long[]{ 1L << 63, 1L << 8 };
+    int[] scores = new int[1];
+
+    Scorers.isolatedPegs().score(b, two, 1, scores);
+    assertEquals(0, scores[0]);
+  }
+
+
+  @Test
+  public void neighboursFollowTheGeometry()
+  {
+    // (0,0) and (1,1), neighbours on the triangular lattice; (0,0) and (2,2), which are not
+    long[] pegs = new long[]{ (1L << 0) | (1L << 4), (1L << 0) | (1L << 8) };
+    int[] scores = new int[2];
+
+    // the 6-hole triangle, whose inner holes have four neighbours
+    Board triangle = Boards.triangular(3);
+    Scorers.isolatedPegs().score(triangle, pegs, 2, scores);
+    assertArrayEquals(new int[]{ 0, 2 }, scores);
+    Scorers.borderLength().score(triangle, pegs, 2, scores);
+    assertArrayEquals(new int[]{ 6, 8 }, scores);
+
+    // the same holes with jumps along rows and columns only
+    Board orthogonal = new Board(3, 3, new int[]{ 1, 0, 0, 1, 1, 0, 1, 1, 1 });
+    Scorers.isolatedPegs().score(orthogonal, pegs, 2, scores);
+    assertArrayEquals(new int[]{ 2, 2 }, scores);
+
+    // on a square with diagonal jumps, a hole has up to eight neighbours
+    Board diagonal = new Board(3, 3, new int[]{ 1, 1, 1, 1, 1, 1, 1, 1, 1 }, Geometry.diagonal());
+    Scorers.isolatedPegs().score(diagonal, pegs, 2, scores);
+    assertArrayEquals(new int[]{ 0, 2 }, scores);
+    Scorers.borderLength().score(diagonal, pegs, 2, scores);
+    assertArrayEquals(new int[]{ 14, 16 }, scores);
+  }
+
+
+  @Test
+  public void weightedScorerNeedsNarrowerBeam()
+  {
+    Board b = Boards.english();
+    WeightedScorer scorer = new WeightedScorer();
+    scorer.add(1, Scorers.borderLength());
+    scorer.add(4, Scorers.isolatedPegs());
+
+    PruningSearch plain = new PruningSearch(b.initialPosition(2, 2));
+    plain.prune(8);
+    plain.setTarget(2, 2);
+    assertEquals(0, plain.search());
+
+    PruningSearch sequential = new PruningSearch(b.initialPosition(2, 2));
+    sequential.prune(8);
+    sequential.setTarget(2, 2);
+    sequential.setScorer(scorer);
+
+    PruningSearch parallel = new PruningSearch(b.initialPosition(2, 2));
+    parallel.prune(8);
+    parallel.setTarget(2, 2);
+    parallel.setScorer(scorer);
+    parallel.setParallelism(4);
+
+    int n = sequential.search();
+    assertTrue(n > 0);
+    assertEquals(n, parallel.search());
+    assertEquals(sequential.getSolution(0).toString(), parallel.getSolution(0).toString());
+  }
+}
@@ -0,0 +1,107 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import solver.Board;
+import solver.Boards;
+import solver.Move;
+import solver.Position;
+import solver.PruningSearch;
+import solver.SolutionCache;
+import org.junit.*;
+
+
+public class SolutionCacheTest
+{
+  private static List<Move> solve(Board b, int x, int y)
+  {
+    PruningSearch search = new PruningSearch(b.initialPosition(x, y));
+    assertTrue(search.search() > 0);
+    return search.getSolution(0);
+  }
+
+
+  private static void assertSolves(Board b, int x, int y, List<Move> solution)
+  {
+    Position p = b.initialPosition(x, y);
+    for (Move m : solution)
+    {
+      p.play(m);
+    }
+    assertEquals(1, countPegs(b, p));
+  }
+
+
+  private static int countPegs(Board b, Position p)
+  {
+    int n = 0;
+    for (int y = 0; y < b.Y; y++)
+    {
+      for (int x = 0; x < b.X; x++)
+      {
+        if (p.occupied(x, y))
+        {
+          n++;
+        }
+      }
+    }
+    return n;
+  }
+
+
+  @Test
+  public void symmetricStartsShareAnEntry() throws Exception
+  {
+    File file = File.createTempFile("solutions", ".bin");
+    file.delete();
+    Board b = Boards.english();
+
+    SolutionCache cache = new SolutionCache(file);
+    assertNull(cache.lookup(b, 3, 2, -1, -1, "prune=200"));
+    cache.store(b, 3, 2, -1, -1, "prune=200", solve(b, 3, 2));
+
+    // (2, 3), (4, 3) and (3, 4) are reflections and rotations of (3, 2)
+    assertSolves(b, 2, 3, cache.lookup(b, 2, 3, -1, -1, "prune=200"));
+    assertSolves(b, 3, 4, cache.lookup(b, 3, 4, -1, -1, "prune=200"));
+    assertNull(cache.lookup(b, 3, 4, -1, -1, "prune=100"));
+    assertEquals(1, cache.size());
+    cache.close();
+
+    SolutionCache reopened = new SolutionCache(file);
+    assertEquals(1, reopened.size());
+    assertSolves(b, 4, 3, reopened.lookup(b, 4, 3, -1, -1, "prune=200"));
+    reopened.close();
+    file.delete();
+  }
+
+
+  @Test
+  public void truncatedRecordIsDropped() throws Exception
+  {
+    File file = File.createTempFile("solutions", ".bin");
+    file.delete();
+    Board b = Boards.english();
+
+    SolutionCache cache = new SolutionCache(file);
+    cache.store(b, 3, 3, -1, -1, "", solve(b, 3, 3));
+    cache.store(b, 3, 2, -1, -1, "", solve(b, 3, 2));
+    cache.close();
+
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    raf.setLength(raf.length() - 5);
+    raf.close();
+
+    SolutionCache repaired = new SolutionCache(file);
+    assertEquals(1, repaired.size());
+    repaired.store(b, 3, 2, -1, -1, "", solve(b, 3, 2));
+    repaired.close();
+
+    SolutionCache reopened = new SolutionCache(file);
+    assertEquals(2, reopened.size());
+    assertSolves(b, 3, 2, reopened.lookup(b, 3, 2, -1, -1, ""));
+    reopened.close();
+    file.delete();
+  }
+}
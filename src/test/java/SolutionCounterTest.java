@@ -0,0 +1,80 @@
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import solver.Board;
+import solver.Boards;
+import solver.ExhaustiveSearch;
+import solver.Move;
+import solver.Position;
+import solver.SolutionCounter;
+import org.junit.*;
+
+
+public class SolutionCounterTest
+{
+  @Test
+  public void countMatchesEnumeration()
+  {
+    Board b = Boards.rectangle(4, 4);
+    SolutionCounter counter = new SolutionCounter(b.initialPosition(0, 1));
+    long n = counter.count();
+
+    ExhaustiveSearch search = new ExhaustiveSearch(b.initialPosition(0, 1));
+    long enumerated = search.enumerate(new ExhaustiveSearch.SolutionVisitor()
+    {
+      public boolean visit(List<Move> solution)
+      {
+        return true;
+      }
+    });
+
+    assertEquals(enumerated, n);
+
+    long perHole = 0;
+    for (int y = 0; y < b.Y; y++)
+    {
+      for (int x = 0; x < b.X; x++)
+      {
+        perHole += counter.solutions(x, y);
+      }
+    }
+    assertEquals(n, perHole);
+  }
+
+
+  @Test
+  public void symmetryGivesSameCounts()
+  {
+    Board b = Boards.rectangle(4, 4);
+    Position p = b.initialPosition(0, 0);
+    p.set(3, 0, false);
+    p.set(0, 3, false);
+    p.set(3, 3, false);
+
+    SolutionCounter plain = new SolutionCounter(p);
+    SolutionCounter reduced = new SolutionCounter(p);
+    reduced.setUseSymmetry(true);
+
+    assertEquals(28960, plain.count());
+    assertEquals(28960, reduced.count());
+    assertTrue(reduced.positions() < plain.positions());
+    for (int y = 0; y < b.Y; y++)
+    {
+      for (int x = 0; x < b.X; x++)
+      {
+        assertEquals(plain.solutions(x, y), reduced.solutions(x, y));
+      }
+    }
+  }
+
+
+  @Test
+  public void positionClassGivesZero()
+  {
+    SolutionCounter counter = new SolutionCounter(Boards.european().initialPosition(3, 3));
+
+    assertEquals(0, counter.count());
+    assertEquals(1, counter.positions());
+  }
+}
@@ -0,0 +1,55 @@
+package solver;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.*;
+
+
+/**
+ * Unit tests of package-private parts of the solver, which the tests in the
+ * default package cannot reach through the public API, live in package solver.
+ * Here the spread of keys over the partitions of a disk frontier is checked
+ * directly, since a search only shows it as running time.
+ */
+public class DiskFrontierTest
+{
+  @Test
+  public void partitionsSpreadOverTheirDedupTables()
+  {
+    int partitions = 64;
+    List<List<long[]>> parts = new ArrayList<List<long[]>>();
+    for (int k = 0; k < partitions; k++)
+    {
+      parts.add(new ArrayList<long[]>());
+    }
+
+    // bitboards of an 8x8 board, as the keys of an exhaustive search would be
+    Random random = new Random(1);
+    for (int n = 0; n < 64 * 2000; n++)
+    {
+      long[] key = new long[]{random.nextLong() & random.nextLong()};
+      parts.get(DiskFrontier.partition(key, partitions)).add(key);
+    }
+
+    for (List<long[]> part : parts)
+    {
+      assertTrue(part.size() > 1000);
+
+      // a StateSet sized for the partition takes the slot from the low bits of the hash
+      int capacity = Integer.highestOneBit((int) (part.size() / StateSet.DEFAULT_LOAD_FACTOR)) * 2;
+      Set<Integer> homes = new HashSet<Integer>();
+      for (long[] key : part)
+      {
+        homes.add((int) StateSet.hash(key, 0, 1) & (capacity - 1));
+      }
+      assertTrue("partition uses " + homes.size() + " home slots for " + part.size() + " keys",
+          homes.size() > part.size() / 2);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package solver;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+
+public class StateMapTest
+{
+  @Test
+  public void putKeepsEveryValueWhenTheMapGrows()
+  {
+    // presized to one key, so the map doubles again and again while filling
+    StateMap map = new StateMap(1, 1, 0.5f);
+    for (long k = 0; k < 1000; k++)
+    {
+      map.put(new long[]{k * 0x9E3779B97F4A7C15L}, k + 1);
+    }
+
+    assertEquals(1000, map.size());
+    for (long k = 0; k < 1000; k++)
+    {
+      assertEquals(k + 1, map.get(new long[]{k * 0x9E3779B97F4A7C15L}, 0));
+    }
+  }
+
+
+  @Test
+  public void valuesSurviveSeveralResizes()
+  {
+    // as SolutionCounter keeps its estimates: two-word keys, read, add and put back
+    StateMap counts = new StateMap(2, 64, StateSet.DEFAULT_LOAD_FACTOR);
+    StateMap sums = new StateMap(2, 64, StateSet.DEFAULT_LOAD_FACTOR);
+    int keys = 20000;
+    for (int round = 0; round < 2; round++)
+    {
+      for (long k = 0; k < keys; k++)
+      {
+        long[] key = new long[]{k, ~k * 31};
+        counts.addTo(key, k);
+        sums.put(key, sums.get(key, 0) + 3 * k);
+      }
+    }
+
+    assertEquals(keys, counts.size());
+    assertEquals(keys, sums.size());
+    assertTrue(counts.slots() >= 16 * 64);
+    for (long k = 0; k < keys; k++)
+    {
+      long[] key = new long[]{k, ~k * 31};
+      assertEquals(2 * k, counts.get(key, -1));
+      assertEquals(6 * k, sums.get(key, -1));
+    }
+    assertEquals(-1, sums.get(new long[]{keys, ~(long) keys * 31}, -1));
+  }
+}